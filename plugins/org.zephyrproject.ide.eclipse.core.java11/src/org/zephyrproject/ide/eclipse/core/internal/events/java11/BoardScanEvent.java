@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.events.java11;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for gathering board configurations.
+ */
+@Name("org.zephyrproject.BoardScan") //$NON-NLS-1$
+@Label("Board Scan")
+@Category({
+	"Zephyr",
+	"Project"
+})
+@Description("Gathering board configurations from ZEPHYR_BASE")
+final class BoardScanEvent extends Event {
+
+	@Label("ZEPHYR_BASE")
+	String zephyrBase;
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.events.java11;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for running the build program.
+ */
+@Name("org.zephyrproject.Build") //$NON-NLS-1$
+@Label("Build")
+@Category({
+	"Zephyr",
+	"Build"
+})
+@Description("Running ninja or make to build a project")
+final class BuildEvent extends Event {
+
+	@Label("Project")
+	String project;
+
+	@Label("Program")
+	String program;
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.events.java11;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for running CMake.
+ */
+@Name("org.zephyrproject.CMakeConfigure") //$NON-NLS-1$
+@Label("CMake Configure")
+@Category({
+	"Zephyr",
+	"Build"
+})
+@Description("Running CMake to configure a project")
+final class CMakeConfigureEvent extends Event {
+
+	@Label("Project")
+	String project;
+
+	@Label("Generator")
+	String generator;
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.events.java11;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a compiler probe.
+ */
+@Name("org.zephyrproject.CompilerProbe") //$NON-NLS-1$
+@Label("Compiler Probe")
+@Category({
+	"Zephyr",
+	"Scanner Discovery"
+})
+@Description("Running the compiler to discover built-in scanner info")
+final class CompilerProbeEvent extends Event {
+
+	@Label("Compiler")
+	String compiler;
+
+	@Label("Signature")
+	String signature;
+
+}
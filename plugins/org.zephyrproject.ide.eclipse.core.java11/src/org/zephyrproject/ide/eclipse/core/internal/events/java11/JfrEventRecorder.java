@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.events.java11;
+
+import java.util.List;
+
+import org.zephyrproject.ide.eclipse.core.internal.IZephyrEventRecorder;
+
+import jdk.jfr.Event;
+
+/**
+ * Event recorder using JDK Flight Recorder.
+ *
+ * Events are only created and timed while a recording has them enabled.
+ * Otherwise a shared span doing nothing is returned.
+ */
+public final class JfrEventRecorder implements IZephyrEventRecorder {
+
+	private static final DataSpan NULL_SPAN = new DataSpan() {
+		@Override
+		public void end() {
+		}
+
+		@Override
+		public void setBytes(long bytes) {
+		}
+	};
+
+	/**
+	 * Span of a Flight Recorder event.
+	 */
+	private static class EventSpan implements DataSpan {
+
+		private final Event event;
+
+		private EventSpan(Event event) {
+			this.event = event;
+			event.begin();
+		}
+
+		@Override
+		public void end() {
+			event.commit();
+		}
+
+		@Override
+		public void setBytes(long bytes) {
+			if (event instanceof ScannerInfoCacheEvent) {
+				((ScannerInfoCacheEvent) event).bytes = bytes;
+			}
+		}
+
+	}
+
+	public JfrEventRecorder() {
+	}
+
+	@Override
+	public Span beginCMakeConfigure(String project, String generator) {
+		CMakeConfigureEvent event = new CMakeConfigureEvent();
+		if (!event.isEnabled()) {
+			return NULL_SPAN;
+		}
+
+		event.project = project;
+		event.generator = generator;
+		return new EventSpan(event);
+	}
+
+	@Override
+	public Span beginBuild(String project, String program) {
+		BuildEvent event = new BuildEvent();
+		if (!event.isEnabled()) {
+			return NULL_SPAN;
+		}
+
+		event.project = project;
+		event.program = program;
+		return new EventSpan(event);
+	}
+
+	@Override
+	public Span beginCompilerProbe(List<String> commandLine) {
+		CompilerProbeEvent event = new CompilerProbeEvent();
+		if (!event.isEnabled()) {
+			return NULL_SPAN;
+		}
+
+		/* The flags following the compiler determine the probe results */
+		event.compiler = commandLine.get(0);
+		event.signature = String.join(" ", //$NON-NLS-1$
+				commandLine.subList(1, commandLine.size()));
+		return new EventSpan(event);
+	}
+
+	@Override
+	public DataSpan beginScannerInfoCache(String project, boolean write) {
+		ScannerInfoCacheEvent event = new ScannerInfoCacheEvent();
+		if (!event.isEnabled()) {
+			return NULL_SPAN;
+		}
+
+		event.project = project;
+		event.operation = write ? "write" : "read"; //$NON-NLS-1$ //$NON-NLS-2$
+		return new EventSpan(event);
+	}
+
+	@Override
+	public Span beginLaunch(String project, String action) {
+		LaunchEvent event = new LaunchEvent();
+		if (!event.isEnabled()) {
+			return NULL_SPAN;
+		}
+
+		event.project = project;
+		event.action = action;
+		return new EventSpan(event);
+	}
+
+	@Override
+	public Span beginBoardScan(String zephyrBase) {
+		BoardScanEvent event = new BoardScanEvent();
+		if (!event.isEnabled()) {
+			return NULL_SPAN;
+		}
+
+		event.zephyrBase = zephyrBase;
+		return new EventSpan(event);
+	}
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.events.java11;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for starting a launch.
+ */
+@Name("org.zephyrproject.Launch") //$NON-NLS-1$
+@Label("Launch")
+@Category({
+	"Zephyr",
+	"Launch"
+})
+@Description("Starting a flash, debug server or emulator launch")
+final class LaunchEvent extends Event {
+
+	@Label("Project")
+	String project;
+
+	@Label("Action")
+	String action;
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.events.java11;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for reading or writing the scanner info cache.
+ */
+@Name("org.zephyrproject.ScannerInfoCache") //$NON-NLS-1$
+@Label("Scanner Info Cache")
+@Category({
+	"Zephyr",
+	"Scanner Discovery"
+})
+@Description("Reading or writing the scanner info cache of a project")
+final class ScannerInfoCacheEvent extends Event {
+
+	@Label("Project")
+	String project;
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+
+}
@@ -6,19 +6,20 @@
 
 package org.zephyrproject.ide.eclipse.core.internal.launch.macosx;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunch;
+import org.zephyrproject.ide.eclipse.core.build.CMakeConstants;
 import org.zephyrproject.ide.eclipse.core.build.ZephyrApplicationBuildConfiguration;
+import org.zephyrproject.ide.eclipse.core.internal.CommandResolver;
 import org.zephyrproject.ide.eclipse.core.internal.ZephyrHelpers;
+import org.zephyrproject.ide.eclipse.core.internal.build.BuildJobs;
 import org.zephyrproject.ide.eclipse.core.launch.IZephyrLaunchHelper;
 
 public final class ZephyrLaunchHelpers implements IZephyrLaunchHelper {
@@ -28,25 +29,21 @@ public final class ZephyrLaunchHelpers implements IZephyrLaunchHelper {
 
 	private static String findCommand(String command) {
 		/* Look for it in the path environment var */
-		String path = System.getenv("PATH"); //$NON-NLS-1$
-		for (String entry : path.split(File.pathSeparator)) {
-			Path entryPath = Paths.get(entry);
-			Path cmdPath = entryPath.resolve(command);
-			if (Files.isExecutable(cmdPath)) {
-				return cmdPath.toString();
-			}
-		}
+		Path cmdPath = CommandResolver.resolve(null, command);
 
-		return null;
+		return (cmdPath != null) ? cmdPath.toString() : null;
 	}
 
 	public Process doMakefile(IProject project,
 			ZephyrApplicationBuildConfiguration appBuildCfg, ILaunch launch,
 			String makeProgram, String mode) throws CoreException, IOException {
-		String[] command = {
-			makeProgram,
-			mode
-		};
+		/* Launch targets may keep running, so their output is not synced */
+		List<String> command = new ArrayList<>();
+		command.add(makeProgram);
+		command.addAll(BuildJobs.getArguments(
+				ZephyrHelpers.getProjectPreferenceStore(project),
+				CMakeConstants.CMAKE_GENERATOR_MAKEFILE, makeProgram, false));
+		command.add(mode);
 
 		ProcessBuilder builder = new ProcessBuilder(command)
 				.directory(appBuildCfg.getBuildDirectory().toFile());
@@ -62,10 +59,12 @@ public final class ZephyrLaunchHelpers implements IZephyrLaunchHelper {
 	public Process doNinja(IProject project,
 			ZephyrApplicationBuildConfiguration appBuildCfg, ILaunch launch,
 			String makeProgram, String mode) throws CoreException, IOException {
-		String[] command = {
-			makeProgram,
-			mode
-		};
+		List<String> command = new ArrayList<>();
+		command.add(makeProgram);
+		command.addAll(BuildJobs.getArguments(
+				ZephyrHelpers.getProjectPreferenceStore(project),
+				CMakeConstants.CMAKE_GENERATOR_NINJA, makeProgram, false));
+		command.add(mode);
 
 		ProcessBuilder builder = new ProcessBuilder(command)
 				.directory(appBuildCfg.getBuildDirectory().toFile());
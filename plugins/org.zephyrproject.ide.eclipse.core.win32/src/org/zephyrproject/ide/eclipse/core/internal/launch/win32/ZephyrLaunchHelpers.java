@@ -7,19 +7,21 @@
 package org.zephyrproject.ide.eclipse.core.internal.launch.win32;
 
 import java.io.BufferedWriter;
-import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.List;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunch;
+import org.zephyrproject.ide.eclipse.core.build.CMakeConstants;
 import org.zephyrproject.ide.eclipse.core.build.ZephyrApplicationBuildConfiguration;
+import org.zephyrproject.ide.eclipse.core.internal.CommandResolver;
 import org.zephyrproject.ide.eclipse.core.internal.ZephyrHelpers;
+import org.zephyrproject.ide.eclipse.core.internal.build.BuildJobs;
 import org.zephyrproject.ide.eclipse.core.launch.IZephyrLaunchHelper;
 
 public final class ZephyrLaunchHelpers implements IZephyrLaunchHelper {
@@ -37,16 +39,9 @@ public final class ZephyrLaunchHelpers implements IZephyrLaunchHelper {
 		}
 
 		/* Look for it in the path environment var */
-		String path = System.getenv("PATH"); //$NON-NLS-1$
-		for (String entry : path.split(File.pathSeparator)) {
-			Path entryPath = Paths.get(entry);
-			Path cmdPath = entryPath.resolve(command);
-			if (Files.isExecutable(cmdPath)) {
-				return cmdPath.toString();
-			}
-		}
+		Path cmdPath = CommandResolver.resolve(null, command);
 
-		return null;
+		return (cmdPath != null) ? cmdPath.toString() : null;
 	}
 
 	private static Path createBatchFile(
@@ -100,14 +95,22 @@ public final class ZephyrLaunchHelpers implements IZephyrLaunchHelper {
 	public Process doMakefile(IProject project,
 			ZephyrApplicationBuildConfiguration appBuildCfg, ILaunch launch,
 			String makeProgram, String mode) throws CoreException, IOException {
-		String cmd = String.format("%s %s", makeProgram, mode);
+		List<String> jobArgs = BuildJobs.getArguments(
+				ZephyrHelpers.getProjectPreferenceStore(project),
+				CMakeConstants.CMAKE_GENERATOR_MAKEFILE, makeProgram, false);
+		String cmd = String.format("%s %s %s", makeProgram,
+				String.join(" ", jobArgs), mode);
 		return runCmd(project, appBuildCfg, launch, cmd);
 	}
 
 	public Process doNinja(IProject project,
 			ZephyrApplicationBuildConfiguration appBuildCfg, ILaunch launch,
 			String makeProgram, String mode) throws CoreException, IOException {
-		String cmd = String.format("%s %s", makeProgram, mode);
+		List<String> jobArgs = BuildJobs.getArguments(
+				ZephyrHelpers.getProjectPreferenceStore(project),
+				CMakeConstants.CMAKE_GENERATOR_NINJA, makeProgram, false);
+		String cmd = String.format("%s %s %s", makeProgram,
+				String.join(" ", jobArgs), mode);
 		return runCmd(project, appBuildCfg, launch, cmd);
 	}
 
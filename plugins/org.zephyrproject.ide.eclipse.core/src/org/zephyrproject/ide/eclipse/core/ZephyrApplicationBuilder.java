@@ -11,9 +11,7 @@ import java.util.Map;
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.build.ICBuildConfiguration;
 import org.eclipse.cdt.core.resources.IConsole;
-import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.runtime.CoreException;
@@ -29,8 +27,13 @@ public class ZephyrApplicationBuilder extends IncrementalProjectBuilder {
 	 * Adjust build kind if needed.
 	 *
 	 * This looks at the resource delta to determine whether a new kind value
-	 * is needed to be passed to the builder. For example, if CMakeLists.txt
-	 * has changed, a {@code FULL_BUILD} is needed to regenerate cmake files.
+	 * is needed to be passed to the builder. Without a delta, nothing is known
+	 * about the previous build, so a {@code FULL_BUILD} is needed.
+	 *
+	 * Changes to CMakeLists.txt, prj.conf and other CMake inputs do not need
+	 * a full build. The build system re-runs CMake by itself when they change,
+	 * and the build configuration runs it when the board or toolchain
+	 * settings change, or after the project has been cleaned.
 	 *
 	 * @param oldKind Current kind value.
 	 * @param delta Resource delta.
@@ -41,28 +44,7 @@ public class ZephyrApplicationBuilder extends IncrementalProjectBuilder {
 			return FULL_BUILD;
 		}
 
-		int newKind = oldKind;
-		IResourceDelta[] children = delta.getAffectedChildren(
-				IResourceDelta.CHANGED | IResourceDelta.CONTENT);
-
-		for (IResourceDelta oneDelta : children) {
-			IResource res = oneDelta.getResource();
-			if (res instanceof IFile) {
-				IFile file = (IFile) res;
-
-				/* If CMakeLists.txt has changed, force a full build */
-				if (file.getName().equals("CMakeLists.txt")) { //$NON-NLS-1$
-					newKind = FULL_BUILD;
-				}
-
-				/* If prj.conf has changed, force a full build */
-				if (file.getName().equals("prj.conf")) { //$NON-NLS-1$
-					newKind = FULL_BUILD;
-				}
-			}
-		}
-
-		return newKind;
+		return oldKind;
 	}
 
 	@Override
@@ -6,9 +6,14 @@
 
 package org.zephyrproject.ide.eclipse.core;
 
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
+import org.zephyrproject.ide.eclipse.core.build.ZephyrCompileOnSave;
+import org.zephyrproject.ide.eclipse.core.internal.CommandResolver;
+import org.zephyrproject.ide.eclipse.core.internal.build.CompilerProbeCache;
 
 /**
  * The activator class controls the plug-in life cycle
@@ -23,6 +28,10 @@ public class ZephyrPlugin extends AbstractUIPlugin {
 	// The shared instance
 	private static ZephyrPlugin plugin;
 
+	private CompilerProbeCache compilerProbeCache;
+
+	private ZephyrCompileOnSave compileOnSave;
+
 	/**
 	 * The constructor
 	 */
@@ -39,6 +48,16 @@ public class ZephyrPlugin extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+
+		/* Toolchain settings may change where commands are found */
+		getPreferenceStore().addPropertyChangeListener(
+				event -> CommandResolver.invalidate());
+
+		compileOnSave = new ZephyrCompileOnSave();
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(compileOnSave,
+				IResourceChangeEvent.POST_CHANGE
+						| IResourceChangeEvent.PRE_CLOSE
+						| IResourceChangeEvent.PRE_DELETE);
 	}
 
 	/*
@@ -49,6 +68,15 @@ public class ZephyrPlugin extends AbstractUIPlugin {
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		ResourcesPlugin.getWorkspace()
+				.removeResourceChangeListener(compileOnSave);
+
+		synchronized (this) {
+			if (compilerProbeCache != null) {
+				compilerProbeCache.writeCache();
+				compilerProbeCache = null;
+			}
+		}
 		plugin = null;
 		super.stop(context);
 	}
@@ -62,6 +90,19 @@ public class ZephyrPlugin extends AbstractUIPlugin {
 		return plugin;
 	}
 
+	/**
+	 * Returns the workspace wide cache of compiler probe results
+	 *
+	 * @return the compiler probe cache
+	 */
+	public synchronized CompilerProbeCache getCompilerProbeCache() {
+		if (compilerProbeCache == null) {
+			compilerProbeCache = new CompilerProbeCache(getStateLocation(),
+					CompilerProbeCache.DEFAULT_CAPACITY);
+		}
+		return compilerProbeCache;
+	}
+
 	public static String getId() {
 		return plugin.getBundle().getSymbolicName();
 	}
@@ -8,14 +8,23 @@
 package org.zephyrproject.ide.eclipse.core.build;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.ConsoleOutputStream;
@@ -32,11 +41,13 @@ import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.model.IPathEntry;
 import org.eclipse.cdt.core.model.ISourceEntry;
 import org.eclipse.cdt.core.model.ITranslationUnit;
+import org.eclipse.cdt.core.model.IWorkingCopy;
 import org.eclipse.cdt.core.parser.IExtendedScannerInfo;
 import org.eclipse.cdt.core.parser.IScannerInfo;
 import org.eclipse.cdt.core.resources.IConsole;
 import org.eclipse.core.resources.IBuildConfiguration;
 import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -44,23 +55,44 @@ import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.ui.preferences.ScopedPreferenceStore;
+import org.zephyrproject.ide.eclipse.core.ZephyrPlugin;
 import org.zephyrproject.ide.eclipse.core.build.toolchain.ZephyrGCCToolChain;
 import org.zephyrproject.ide.eclipse.core.build.toolchain.ZephyrGenericToolChain;
+import org.zephyrproject.ide.eclipse.core.internal.CommandResolver;
+import org.zephyrproject.ide.eclipse.core.internal.IZephyrEventRecorder.Span;
+import org.zephyrproject.ide.eclipse.core.internal.ZephyrEvents;
 import org.zephyrproject.ide.eclipse.core.internal.ZephyrHelpers;
 import org.zephyrproject.ide.eclipse.core.internal.ZephyrPaths;
+import org.zephyrproject.ide.eclipse.core.internal.build.BuildHistory;
+import org.zephyrproject.ide.eclipse.core.internal.build.BuildJobs;
+import org.zephyrproject.ide.eclipse.core.internal.build.BuildOutputRefresher;
+import org.zephyrproject.ide.eclipse.core.internal.build.BuildRecord;
 import org.zephyrproject.ide.eclipse.core.internal.build.CMakeCache;
+import org.zephyrproject.ide.eclipse.core.internal.build.CMakeFingerprint;
 import org.zephyrproject.ide.eclipse.core.internal.build.CompileCommand;
+import org.zephyrproject.ide.eclipse.core.internal.build.CompileCommandsReader;
+import org.zephyrproject.ide.eclipse.core.internal.build.CompilerProbeCache;
+import org.zephyrproject.ide.eclipse.core.internal.build.CompilerProbeExecutor;
+import org.zephyrproject.ide.eclipse.core.internal.build.CompilerProbeSignature;
 import org.zephyrproject.ide.eclipse.core.internal.build.MakefileProgressMonitor;
+import org.zephyrproject.ide.eclipse.core.internal.build.NinjaBuildEstimator;
+import org.zephyrproject.ide.eclipse.core.internal.build.NinjaGraph;
+import org.zephyrproject.ide.eclipse.core.internal.build.NinjaLog;
 import org.zephyrproject.ide.eclipse.core.internal.build.NinjaProgressMonitor;
+import org.zephyrproject.ide.eclipse.core.internal.build.ResourceLocationIndex;
+import org.zephyrproject.ide.eclipse.core.internal.build.ScannerInfoInterner;
 import org.zephyrproject.ide.eclipse.core.internal.build.ZephyrScannerInfoCache;
 import org.zephyrproject.ide.eclipse.core.preferences.ZephyrProjectPreferences;
 import org.zephyrproject.ide.eclipse.core.preferences.ZephyrProjectPreferences.ZephyrBase;
 
-import com.google.gson.Gson;
-
 /**
  * Build configuration for Zephyr Application
  *
@@ -74,6 +106,9 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 			ZephyrApplicationBuildConfigurationProvider.ID
 					+ "/zephyr.app.build.config"; //$NON-NLS-1$
 
+	/* Milliseconds between checks for canceling a compilation */
+	private static final long CANCEL_POLL_INTERVAL = 100;
+
 	private String cmakeCmd;
 
 	private String cmakeMakeProgram;
@@ -82,6 +117,54 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 
 	private ZephyrScannerInfoCache scannerInfoCache;
 
+	/* PATH of the build environment, for the settings it was built with */
+	private volatile CommandSearchPath commandSearchPath;
+
+	private static final class CommandSearchPath {
+
+		private final Map<String, String> settings;
+
+		private final String path;
+
+		private CommandSearchPath(Map<String, String> settings, String path) {
+			this.settings = settings;
+			this.path = path;
+		}
+
+	}
+
+	/* When the last build started, for the scanner discovery after it */
+	private volatile long buildStartTime;
+
+	/* Compiler probe signatures of files yet to be probed, in lazy mode */
+	private volatile Map<String, CompilerProbeSignature> lazyIndex;
+
+	/* Compiler probes started on demand, in lazy mode */
+	private final Map<CompilerProbeSignature, LazyProbe> lazyProbes =
+			new ConcurrentHashMap<>();
+
+	/* Milliseconds before retrying a failed on-demand probe */
+	private static final long LAZY_RETRY_DELAY = 30000;
+
+	/**
+	 * Compiler probe started on demand, shared by the resources with the
+	 * same compiler probe signature.
+	 */
+	private static final class LazyProbe {
+
+		/* Result of the probe, once it has succeeded */
+		private IExtendedScannerInfo info;
+
+		private boolean running;
+
+		/* When the probe last failed, to not retry it right away */
+		private long failedTime;
+
+		/* Resources given fallback scanner info while the probe runs */
+		private final Set<IResource> waiting = new HashSet<>();
+
+	}
+
 	public ZephyrApplicationBuildConfiguration(IBuildConfiguration config,
 			String name, IToolChain toolChain) {
 		super(config, name, toolChain);
@@ -124,6 +207,41 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 		ZephyrHelpers.setupBuildCommandEnvironment(pStore, env);
 	}
 
+	@Override
+	public Path findCommand(String command) {
+		if (Platform.getOS().equals(Platform.OS_WIN32)
+				&& !command.endsWith(".exe") //$NON-NLS-1$
+				&& !command.endsWith(".bat")) { //$NON-NLS-1$
+			command = command + ".exe"; //$NON-NLS-1$
+		}
+
+		return CommandResolver.resolve(getCommandSearchPath(), command);
+	}
+
+	/**
+	 * Get the PATH of the build environment, where commands are found.
+	 *
+	 * Building the environment is costly, so it is only done again when
+	 * the toolchain settings of the project change, or for a new build.
+	 *
+	 * @return Value of PATH.
+	 */
+	private String getCommandSearchPath() {
+		/* Toolchain settings may change where commands are found */
+		Map<String, String> settings = new TreeMap<>();
+		ZephyrHelpers.setupBuildCommandEnvironment(pStore, settings);
+
+		CommandSearchPath searchPath = commandSearchPath;
+		if ((searchPath == null) || !searchPath.settings.equals(settings)) {
+			Map<String, String> env = new HashMap<>(System.getenv());
+			setBuildEnvironment(env);
+			searchPath = new CommandSearchPath(settings,
+					CommandResolver.getPath(env));
+			commandSearchPath = searchPath;
+		}
+		return searchPath.path;
+	}
+
 	/**
 	 * @return The CMake Generator identifier
 	 */
@@ -179,7 +297,10 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 					return null;
 				}
 
-				buildProgress = new NinjaProgressMonitor(monitor);
+				/* Estimate from the history, before this build adds to it */
+				buildProgress = new NinjaProgressMonitor(monitor,
+						project.getName(),
+						new NinjaBuildEstimator(new NinjaLog(buildDir)));
 			} else {
 				throw new CoreException(ZephyrHelpers.errorStatus(
 						"Unknonw CMake Generator specified", new Exception()));
@@ -193,26 +314,34 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 						buildFolder.getProjectRelativePath().toString()));
 				epm.setOutputStream(console.getOutputStream());
 
-				String[] command = {
-					this.cmakeMakeProgram
-				};
+				List<String> command = new ArrayList<>();
 
-				Path cmdPath = findCommand(command[0]);
-				if (cmdPath != null) {
-					command[0] = cmdPath.toString();
+				Path cmdPath = findCommand(this.cmakeMakeProgram);
+				command.add((cmdPath != null) ? cmdPath.toString()
+						: this.cmakeMakeProgram);
+				command.addAll(BuildJobs.getArguments(pStore, cmakeGenerator,
+						command.get(0), true));
+
+				Span span = ZephyrEvents.getRecorder()
+						.beginBuild(project.getName(), command.get(0));
+				try {
+					ProcessBuilder processBuilder = new ProcessBuilder(command)
+							.directory(buildDir.toFile());
+					setBuildEnvironment(processBuilder.environment());
+					processBuilder.environment().put(
+							NinjaProgressMonitor.NINJA_STATUS_ENV,
+							NinjaProgressMonitor.NINJA_STATUS);
+					Process process = processBuilder.start();
+					consoleOut.write(String.join(" ", command)
+							+ System.lineSeparator());
+					watchProcess(process, new IConsoleParser[] {
+						epm,
+						buildProgress
+					});
+				} finally {
+					span.end();
 				}
 
-				ProcessBuilder processBuilder = new ProcessBuilder(command)
-						.directory(buildDir.toFile());
-				setBuildEnvironment(processBuilder.environment());
-				Process process = processBuilder.start();
-				consoleOut.write(
-						String.join(" ", command) + System.lineSeparator());
-				watchProcess(process, new IConsoleParser[] {
-					epm,
-					buildProgress
-				});
-
 				consoleOut.write(String.format(
 						"----- Done building for board %s in %s%n", boardName,
 						buildFolder.getProjectRelativePath().toString()));
@@ -220,8 +349,6 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 
 			monitor.done();
 
-			processCompileCommandsFile(monitor);
-
 			return project;
 		} catch (IOException eio) {
 			throw new CoreException(ZephyrHelpers.errorStatus(String.format(
@@ -268,13 +395,33 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 			String projectAbsPath =
 					new File(project.getLocationURI()).getAbsolutePath();
 
-			if (!Files.exists(buildDir.resolve("CMakeFiles")) //$NON-NLS-1$
-					|| (kind == IncrementalProjectBuilder.FULL_BUILD)) {
+			/*
+			 * Once configured, ninja and make re-run CMake by themselves when
+			 * any file it has read changes, so only run CMake here when
+			 * something they do not track has changed.
+			 */
+			Map<String, String> zephyrEnv = new TreeMap<>();
+			ZephyrHelpers.setupBuildCommandEnvironment(pStore, zephyrEnv);
+			CMakeFingerprint fingerprint = new CMakeFingerprint(boardName,
+					getCMakeGenerator(), zephyrEnv,
+					new File(projectAbsPath).toPath());
+			List<String> changes =
+					fingerprint.getChanges(CMakeFingerprint.read(buildDir));
+
+			String buildFile = getCMakeGenerator()
+					.equals(CMakeConstants.CMAKE_GENERATOR_NINJA)
+							? "build.ninja" //$NON-NLS-1$
+							: "Makefile"; //$NON-NLS-1$
+			if (!Files.exists(buildDir.resolve(buildFile))) {
+				changes.add(0, String.format("%s does not exist", buildFile));
+			}
 
+			if (!changes.isEmpty()) {
 				consoleOut.write(String.format(
-						"----- Generating CMake files for board %s in %s%n",
+						"----- Generating CMake files for board %s in %s (%s)%n",
 						boardName,
-						buildFolder.getProjectRelativePath().toString()));
+						buildFolder.getProjectRelativePath().toString(),
+						String.join(", ", changes)));
 
 				List<String> command = new ArrayList<>();
 
@@ -299,14 +446,23 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 
 				command.add(projectAbsPath);
 
-				ProcessBuilder processBuilder = new ProcessBuilder(command)
-						.directory(buildDir.toFile());
-				setBuildEnvironment(processBuilder.environment());
-				Process process = processBuilder.start();
-				consoleOut.write(
-						String.join(" ", command) + System.lineSeparator());
+				Span span = ZephyrEvents.getRecorder().beginCMakeConfigure(
+						project.getName(), getCMakeGenerator());
+				try {
+					ProcessBuilder processBuilder = new ProcessBuilder(command)
+							.directory(buildDir.toFile());
+					setBuildEnvironment(processBuilder.environment());
+					Process process = processBuilder.start();
+					consoleOut.write(String.join(" ", command)
+							+ System.lineSeparator());
 
-				watchProcess(process, console);
+					if ((watchProcess(process, console) == 0)
+							&& Files.exists(buildDir.resolve(buildFile))) {
+						fingerprint.write(buildDir);
+					}
+				} finally {
+					span.end();
+				}
 
 				consoleOut.write(String.format(
 						"----- Done generating CMake files for board %s in %s%n",
@@ -353,6 +509,15 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 
 		SubMonitor subMonitor = SubMonitor.convert(monitor, 103);
 
+		/* The build environment may have changed outside of the project */
+		commandSearchPath = null;
+
+		/*
+		 * Results of an earlier discovery still running are outdated, and
+		 * the background compilation builds the same objects.
+		 */
+		stopBackgroundJobs(subMonitor);
+
 		/* Remove C-related warnings/errors */
 		project.deleteMarkers(ICModelMarker.C_MODEL_PROBLEM_MARKER, false,
 				IResource.DEPTH_INFINITE);
@@ -363,24 +528,121 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 			updateZephyrBaseExclusionList(project);
 		}
 
-		if (cmakeBuild(kind, args, console, subMonitor.newChild(1)) == null) {
-			return null;
-		}
+		/* Remember where the build starts, to only refresh its outputs */
+		long buildStart = System.currentTimeMillis();
+		buildStartTime = buildStart;
+		NinjaLog ninjaLog = new NinjaLog(getBuildDirectory());
+		NinjaLog.Mark ninjaMark = ninjaLog.mark();
 
-		updateCMakeVariables();
-		updateToolChain();
+		BuildRecord record = new BuildRecord(BuildRecord.KIND_BUILD);
+		try {
+			long start = System.nanoTime();
+			if (cmakeBuild(kind, args, console,
+					subMonitor.newChild(1)) == null) {
+				return null;
+			}
+			record.addPhase("cmake", start); //$NON-NLS-1$
 
-		if (appBuild(kind, args, console, subMonitor.newChild(101)) == null) {
-			return null;
-		}
+			updateCMakeVariables();
+			updateToolChain();
 
-		project.refreshLocal(IResource.DEPTH_INFINITE, subMonitor.newChild(1));
+			start = System.nanoTime();
+			if (appBuild(kind, args, console,
+					subMonitor.newChild(101)) == null) {
+				return null;
+			}
+			record.addPhase("build", start); //$NON-NLS-1$
+
+			start = System.nanoTime();
+			record.setFilesRefreshed(refreshBuildOutputs(buildStart, ninjaLog,
+					ninjaMark, subMonitor.newChild(1)));
+			record.addPhase("refresh", start); //$NON-NLS-1$
+
+			/*
+			 * Discovery runs in background so it does not hold the builder.
+			 * It completes the record.
+			 */
+			new ZephyrDiscoveryJob(this, console, record).schedule();
+			record = null;
+		} finally {
+			if (record != null) {
+				record.setResult(BuildRecord.RESULT_FAILED);
+				recordBuild(record, console);
+			}
+		}
 
 		return new IProject[] {
 			project
 		};
 	}
 
+	/**
+	 * Add a record to the build history of the project, and print its
+	 * summary to the build console.
+	 *
+	 * @param record The record.
+	 * @param console Console of the build.
+	 */
+	void recordBuild(BuildRecord record, IConsole console) {
+		new BuildHistory(getProject()).append(record);
+
+		try {
+			console.getInfoStream()
+					.write(record.getSummary() + System.lineSeparator());
+		} catch (IOException | CoreException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Refresh the files written by the build.
+	 *
+	 * With ninja, the outputs are taken from its log. With make, the
+	 * outputs declared in the makefiles are checked for being modified
+	 * during the build. If CMake has run, the whole build folder is
+	 * refreshed.
+	 *
+	 * @param buildStart Time when the build started.
+	 * @param ninjaLog Log of ninja in the build directory.
+	 * @param ninjaMark Mark in the ninja log taken before the build.
+	 * @param monitor Progress monitor.
+	 * @return Number of files refreshed, or -1 if the whole build folder
+	 *         has been refreshed.
+	 * @throws CoreException
+	 */
+	private int refreshBuildOutputs(long buildStart, NinjaLog ninjaLog,
+			NinjaLog.Mark ninjaMark, IProgressMonitor monitor)
+			throws CoreException {
+		Path buildDir = getBuildDirectory();
+		BuildOutputRefresher refresher =
+				new BuildOutputRefresher(getBuildContainer(), buildDir);
+
+		/* CMake rewrites many files when it runs, which ninja does not log */
+		long threshold = buildStart
+				- (buildStart % BuildOutputRefresher.MTIME_GRANULARITY);
+		File cmakeCache = buildDir.resolve("CMakeCache.txt").toFile(); //$NON-NLS-1$
+		List<String> outputs = null;
+		if (cmakeCache.lastModified() < threshold) {
+			if (getCMakeGenerator()
+					.equals(CMakeConstants.CMAKE_GENERATOR_NINJA)) {
+				outputs = BuildOutputRefresher.getNinjaOutputs(ninjaLog,
+						ninjaMark);
+			} else {
+				outputs = refresher.getMakeOutputs(buildStart);
+				if (outputs == null) {
+					outputs = refresher.getModifiedFiles(buildStart);
+				}
+			}
+		}
+
+		if (outputs != null) {
+			return refresher.refresh(outputs, monitor);
+		}
+
+		refresher.refreshAll(monitor);
+		return -1;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -393,6 +655,17 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 			throws CoreException {
 		IProject project = getProject();
 
+		stopBackgroundJobs(monitor);
+
+		/*
+		 * The fingerprint does not cover everything CMake depends on, so an
+		 * explicit clean makes the following build run CMake again.
+		 */
+		CMakeFingerprint.invalidate(getBuildDirectory());
+
+		BuildRecord record = new BuildRecord(BuildRecord.KIND_CLEAN);
+		record.setResult(BuildRecord.RESULT_FAILED);
+		long start = System.nanoTime();
 		try {
 			/* Remove C-related warnings/errors */
 			project.deleteMarkers(ICModelMarker.C_MODEL_PROBLEM_MARKER, false,
@@ -439,15 +712,14 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 			consoleOut.write(String.format("----- Cleaning in %s%n",
 					buildFolder.getProjectRelativePath().toString()));
 
-			String[] command = {
-				this.cmakeMakeProgram,
-				"clean" //$NON-NLS-1$
-			};
+			List<String> command = new ArrayList<>();
 
-			Path cmdPath = findCommand(command[0]);
-			if (cmdPath != null) {
-				command[0] = cmdPath.toString();
-			}
+			Path cmdPath = findCommand(this.cmakeMakeProgram);
+			command.add((cmdPath != null) ? cmdPath.toString()
+					: this.cmakeMakeProgram);
+			command.addAll(BuildJobs.getArguments(pStore, cmakeGenerator,
+					command.get(0), true));
+			command.add("clean"); //$NON-NLS-1$
 
 			ProcessBuilder processBuilder =
 					new ProcessBuilder(command).directory(buildDir.toFile());
@@ -461,13 +733,288 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 					buildFolder.getProjectRelativePath().toString()));
 
 			project.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+			record.setResult(BuildRecord.RESULT_OK);
 		} catch (IOException eio) {
 			throw new CoreException(ZephyrHelpers.errorStatus(String.format(
 					"Error cleaning Zephyr Application project %s!",
 					project.getName()), eio));
+		} finally {
+			record.addPhase("clean", start); //$NON-NLS-1$
+			recordBuild(record, console);
 		}
 	}
 
+	/**
+	 * Compile a single source file, to check it for errors.
+	 *
+	 * @param file The source file.
+	 * @param console Console for the compiler output.
+	 * @param monitor Progress monitor.
+	 * @return Exit code of the compilation, or -1 if there is no way to
+	 *         compile the file, in which case nothing is written to the
+	 *         console.
+	 * @throws CoreException
+	 * @see #compileFiles(Collection, IConsole, IProgressMonitor)
+	 */
+	public int compileFile(IFile file, IConsole console,
+			IProgressMonitor monitor) throws CoreException {
+		return compileFiles(Collections.singleton(file), console, monitor);
+	}
+
+	/**
+	 * Compile the objects affected by changed files, to check them for
+	 * errors.
+	 *
+	 * Only the objects are built: with ninja, the objects reading the files
+	 * according to build.ninja and .ninja_deps, so changed headers compile
+	 * the sources including them; otherwise the files themselves, by
+	 * running their commands from compile_commands.json. Nothing is linked,
+	 * and neither the scanner discovery nor the refresh of the build outputs
+	 * are run. The problem markers of the files and of the compiled sources
+	 * are replaced by those of this compilation.
+	 *
+	 * The compiler processes are killed when the monitor is canceled.
+	 *
+	 * The project has to have been built before.
+	 *
+	 * @param files The changed files.
+	 * @param console Console for the compiler output.
+	 * @param monitor Progress monitor.
+	 * @return Exit code of the first failed compilation, 0 if all succeed,
+	 *         or -1 if there is no way to compile the files, in which case
+	 *         nothing is written to the console.
+	 * @throws CoreException
+	 */
+	public int compileFiles(Collection<IFile> files, IConsole console,
+			IProgressMonitor monitor) throws CoreException {
+		IProject project = getProject();
+
+		List<String> names = new ArrayList<>();
+		List<Path> paths = new ArrayList<>();
+		for (IFile file : files) {
+			names.add(file.getProjectRelativePath().toString());
+			paths.add(new File(file.getLocationURI()).toPath());
+		}
+		String fileNames = String.join(", ", names); //$NON-NLS-1$
+
+		try {
+			monitor.beginTask(String.format("Compiling %s...", fileNames), 1);
+
+			for (IFile file : files) {
+				file.deleteMarkers(ICModelMarker.C_MODEL_PROBLEM_MARKER, false,
+						IResource.DEPTH_ZERO);
+			}
+
+			updateToolChain();
+			updateCMakeVariables();
+
+			Set<Path> sources = new HashSet<>();
+			List<ProcessBuilder> processBuilders =
+					getCompileProcesses(paths, sources);
+			if (processBuilders.isEmpty()) {
+				return -1;
+			}
+
+			/* Errors of the sources compiled again are reported anew */
+			for (Path source : sources) {
+				for (IFile file : project.getWorkspace().getRoot()
+						.findFilesForLocationURI(source.toUri())) {
+					file.deleteMarkers(ICModelMarker.C_MODEL_PROBLEM_MARKER,
+							false, IResource.DEPTH_ZERO);
+				}
+			}
+
+			ConsoleOutputStream consoleOut = console.getOutputStream();
+			consoleOut.write(String.format("----- Compiling %s%n", fileNames));
+
+			int exitCode = 0;
+			try (ErrorParserManager epm =
+					new ErrorParserManager(project, getBuildDirectoryURI(),
+							this, getToolChain().getErrorParserIds())) {
+				epm.setOutputStream(console.getOutputStream());
+
+				for (ProcessBuilder processBuilder : processBuilders) {
+					if (monitor.isCanceled()) {
+						break;
+					}
+					setBuildEnvironment(processBuilder.environment());
+
+					List<String> command = processBuilder.command();
+					Span span = ZephyrEvents.getRecorder()
+							.beginBuild(project.getName(), command.get(0));
+					try {
+						Process process = processBuilder.start();
+						consoleOut.write(String.join(" ", command)
+								+ System.lineSeparator());
+						int code = watchCancelableProcess(process,
+								new IConsoleParser[] {
+									epm
+								}, monitor);
+						if (exitCode == 0) {
+							exitCode = code;
+						}
+					} finally {
+						span.end();
+					}
+				}
+			}
+
+			consoleOut.write(String.format(monitor.isCanceled()
+					? "----- Canceled compiling %s%n"
+					: "----- Done compiling %s%n", fileNames));
+			monitor.worked(1);
+			monitor.done();
+
+			return exitCode;
+		} catch (IOException eio) {
+			throw new CoreException(ZephyrHelpers.errorStatus(
+					String.format("Error compiling %s!", fileNames), eio));
+		}
+	}
+
+	/**
+	 * Cancel the scanner discovery and the background compilation of the
+	 * project, and wait for them to stop. Otherwise, the discovery could
+	 * still update the index with outdated results, and the compiler
+	 * processes could run in the build directory along with ninja or make.
+	 *
+	 * @param monitor Progress monitor to cancel waiting.
+	 */
+	private void stopBackgroundJobs(IProgressMonitor monitor) {
+		IProject project = getProject();
+		ZephyrDiscoveryJob.cancelFor(project);
+		ZephyrCompileJob.cancelFor(project);
+		try {
+			ZephyrDiscoveryJob.joinFor(project, monitor);
+			ZephyrCompileJob.joinFor(project, monitor);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		}
+	}
+
+	/**
+	 * Watch a process like {@link #watchProcess(Process, IConsoleParser[])},
+	 * but destroy it as soon as the monitor is canceled.
+	 */
+	private int watchCancelableProcess(Process process,
+			IConsoleParser[] consoleParsers, IProgressMonitor monitor)
+			throws CoreException {
+		Thread watchdog = new Thread(() -> {
+			try {
+				while (process.isAlive()) {
+					if (monitor.isCanceled()) {
+						process.destroy();
+						return;
+					}
+					Thread.sleep(CANCEL_POLL_INTERVAL);
+				}
+			} catch (InterruptedException e) {
+				/* Process is done */
+			}
+		}, "Zephyr compile watchdog"); //$NON-NLS-1$
+		watchdog.setDaemon(true);
+		watchdog.start();
+
+		try {
+			return watchProcess(process, consoleParsers);
+		} finally {
+			watchdog.interrupt();
+		}
+	}
+
+	/**
+	 * Get the processes compiling the objects affected by changed files.
+	 *
+	 * @param changed Paths of the changed files.
+	 * @param sources Filled with the paths of the sources compiled.
+	 * @return The processes, not started, empty if none of the files are
+	 *         compiled by the build.
+	 * @throws CoreException
+	 */
+	private List<ProcessBuilder> getCompileProcesses(List<Path> changed,
+			Set<Path> sources) throws CoreException {
+		Path buildDir = getBuildDirectory();
+		List<ProcessBuilder> processBuilders = new ArrayList<>();
+
+		if (getCMakeGenerator().equals(CMakeConstants.CMAKE_GENERATOR_NINJA)) {
+			NinjaGraph graph;
+			try {
+				graph = NinjaGraph.get(buildDir);
+			} catch (IOException e) {
+				e.printStackTrace();
+				graph = null;
+			}
+
+			if (graph != null) {
+				int[] nodes = changed.stream().mapToInt(graph::findNode)
+						.filter(node -> node >= 0).toArray();
+
+				/* Only the objects: the rest would lead to linking */
+				List<String> targets = new ArrayList<>();
+				BitSet edges = graph.getAffectedEdges(nodes, false);
+				for (int edge = edges.nextSetBit(0); edge >= 0; edge =
+						edges.nextSetBit(edge + 1)) {
+					if (graph.isCompile(edge)) {
+						targets.add(graph.getPath(graph.getOutputs(edge)[0]));
+						sources.add(buildDir.resolve(
+								graph.getPath(graph.getInputs(edge)[0]))
+								.normalize());
+					}
+				}
+
+				if (!targets.isEmpty()) {
+					List<String> command = new ArrayList<>();
+					Path cmdPath = findCommand(this.cmakeMakeProgram);
+					command.add((cmdPath != null) ? cmdPath.toString()
+							: this.cmakeMakeProgram);
+					command.addAll(BuildJobs.getArguments(pStore,
+							CMakeConstants.CMAKE_GENERATOR_NINJA,
+							command.get(0), true));
+					command.addAll(targets);
+
+					processBuilders.add(new ProcessBuilder(command)
+							.directory(buildDir.toFile()));
+					return processBuilders;
+				}
+			}
+		}
+
+		/* Otherwise run the compiler as the build would */
+		Path compileCommandsJson =
+				buildDir.resolve("compile_commands.json"); //$NON-NLS-1$
+		if (!Files.exists(compileCommandsJson)) {
+			return processBuilders;
+		}
+
+		Set<String> sourcePaths = new HashSet<>();
+		for (Path source : changed) {
+			sourcePaths.add(source.normalize().toString());
+		}
+		Map<String, CompileCommand> found = new LinkedHashMap<>();
+		try {
+			new CompileCommandsReader(compileCommandsJson).read(entry -> {
+				if (sourcePaths.contains(entry.getFilePath())) {
+					found.putIfAbsent(entry.getFilePath(), entry);
+				}
+			});
+		} catch (IOException e) {
+			throw new CoreException(ZephyrHelpers.errorStatus(
+					"Cannot read compile_commands.json", e));
+		}
+
+		for (CompileCommand entry : found.values()) {
+			ProcessBuilder processBuilder =
+					new ProcessBuilder(entry.getArguments());
+			if (entry.getDirectory() != null) {
+				processBuilder.directory(new File(entry.getDirectory()));
+			}
+			processBuilders.add(processBuilder);
+			sources.add(Paths.get(entry.getFilePath()));
+		}
+		return processBuilders;
+	}
+
 	@Override
 	public String getBinaryParserId() throws CoreException {
 		return CCorePlugin.PLUGIN_ID + ".ELF"; //$NON-NLS-1$
@@ -496,6 +1043,10 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 	public IScannerInfo getScannerInformation(IResource resource) {
 		IExtendedScannerInfo info = scannerInfoCache.getScannerInfo(resource);
 
+		if (info == null) {
+			info = probeOnDemand(resource);
+		}
+
 		if (info == null) {
 			ICElement celement =
 					CCorePlugin.getDefault().getCoreModel().create(resource);
@@ -507,20 +1058,217 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 		return info;
 	}
 
+	/**
+	 * Probe the compiler for a resource the first time its scanner info is
+	 * needed, in lazy mode.
+	 *
+	 * The probe runs in a job, as the scanner info may be needed from any
+	 * thread, including the UI thread. Until it is done, the resource gets
+	 * the fallback scanner info, and is indexed again once it is. Requests
+	 * for resources sharing the same compiler probe signature share a
+	 * single probe.
+	 *
+	 * @param resource The resource.
+	 * @return The discovered scanner info, or null if the resource is not
+	 *         compiled or the probe is not done.
+	 */
+	private IExtendedScannerInfo probeOnDemand(IResource resource) {
+		IPath location = resource.getLocation();
+		if (location == null) {
+			return null;
+		}
+
+		Map<String, CompilerProbeSignature> index = getLazyIndex();
+		if (index == null) {
+			return null;
+		}
+
+		CompilerProbeSignature signature = index.get(location.toOSString());
+		if (signature == null) {
+			return null;
+		}
+
+		LazyProbe probe =
+				lazyProbes.computeIfAbsent(signature, s -> new LazyProbe());
+		IExtendedScannerInfo info;
+		synchronized (probe) {
+			info = probe.info;
+			if (info == null) {
+				probe.waiting.add(resource);
+				if (!probe.running && (System.currentTimeMillis()
+						- probe.failedTime >= LAZY_RETRY_DELAY)) {
+					probe.running = true;
+					startLazyProbe(signature, probe, resource);
+				}
+				return null;
+			}
+		}
+
+		scannerInfoCache.setScannerInfo(resource, info);
+		scannerInfoCache.setDefaultScannerInfo(resource, info);
+		return info;
+	}
+
+	/**
+	 * Run an on-demand probe, then store its result for the resources
+	 * waiting for it, and have them indexed again.
+	 */
+	private void startLazyProbe(CompilerProbeSignature signature,
+			LazyProbe probe, IResource resource) {
+		Job job = new Job(String.format("Discovering scanner info for %s",
+				resource.getName())) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				IExtendedScannerInfo info = null;
+				try {
+					info = probeCompileCommandGroup(signature, resource, null);
+				} catch (CoreException | RuntimeException e) {
+					e.printStackTrace();
+				}
+
+				List<IResource> waiting;
+				synchronized (probe) {
+					probe.running = false;
+					if (info != null) {
+						probe.info = info;
+					} else {
+						probe.failedTime = System.currentTimeMillis();
+					}
+					waiting = new ArrayList<>(probe.waiting);
+					probe.waiting.clear();
+				}
+
+				/* A build since then has made the result outdated */
+				if ((info == null) || (lazyProbes.get(signature) != probe)) {
+					return Status.OK_STATUS;
+				}
+
+				List<ICElement> tuSelection = new ArrayList<>();
+				for (IResource r : waiting) {
+					scannerInfoCache.setScannerInfo(r, info);
+					scannerInfoCache.setDefaultScannerInfo(r, info);
+					ICElement element =
+							CCorePlugin.getDefault().getCoreModel().create(r);
+					if (element != null) {
+						tuSelection.add(element);
+					}
+				}
+				scannerInfoCache.writeCache();
+
+				if (!tuSelection.isEmpty()) {
+					try {
+						CCorePlugin.getIndexManager().update(
+								tuSelection.toArray(new ICElement[0]),
+								IIndexManager.UPDATE_CHECK_CONFIGURATION);
+					} catch (CoreException e) {
+						return e.getStatus();
+					}
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.setPriority(Job.SHORT);
+		job.schedule();
+	}
+
+	/**
+	 * Get the index of files to be probed on demand.
+	 *
+	 * The index is created after build. If it is not there yet, e.g. after
+	 * restarting the workbench, it is created from compile_commands.json.
+	 *
+	 * @return The index, or null if not in lazy mode.
+	 */
+	private Map<String, CompilerProbeSignature> getLazyIndex() {
+		Map<String, CompilerProbeSignature> index = lazyIndex;
+		if ((index != null) || !isLazyScannerDiscovery()) {
+			return index;
+		}
+
+		synchronized (lazyProbes) {
+			if (lazyIndex == null) {
+				Map<CompilerProbeSignature, List<IResource>> groups =
+						new LinkedHashMap<>();
+				try {
+					Path commandsFile = getBuildDirectory()
+							.resolve("compile_commands.json"); //$NON-NLS-1$
+					if (Files.exists(commandsFile)) {
+						ResourceLocationIndex locations =
+								new ResourceLocationIndex(getProject());
+						new CompileCommandsReader(commandsFile)
+								.read(command -> groupCompileCommand(
+										command.getArguments(), groups,
+										locations));
+					}
+				} catch (IOException | CoreException e) {
+					e.printStackTrace();
+				}
+				lazyIndex = createLazyIndex(groups);
+			}
+			return lazyIndex;
+		}
+	}
+
+	private static Map<String, CompilerProbeSignature> createLazyIndex(
+			Map<CompilerProbeSignature, List<IResource>> groups) {
+		Map<String, CompilerProbeSignature> index = new HashMap<>();
+		groups.forEach((signature, resources) -> {
+			for (IResource resource : resources) {
+				IPath location = resource.getLocation();
+				if (location != null) {
+					index.put(location.toOSString(), signature);
+				}
+			}
+		});
+		return index;
+	}
+
+	/**
+	 * @return The resources open in editors.
+	 */
+	private static Set<IResource> getOpenResources() {
+		Set<IResource> resources = new HashSet<>();
+		for (IWorkingCopy workingCopy : CCorePlugin
+				.getSharedWorkingCopies()) {
+			if (workingCopy.getResource() != null) {
+				resources.add(workingCopy.getResource());
+			}
+		}
+		return resources;
+	}
+
+	private boolean isLazyScannerDiscovery() {
+		return ZephyrProjectPreferences.SCANNER_DISCOVERY_MODE_LAZY
+				.equals(ZephyrProjectPreferences
+						.getScannerDiscoveryMode(pStore));
+	}
+
 	@Override
 	public boolean processLine(String line) {
 		return false;
 	}
 
-	public void processCompileCommand(String line,
-			ArrayList<ICElement> tuSelection) throws CoreException {
-
-		List<String> command = Arrays.asList(line.split("\\s+")); //$NON-NLS-1$
+	/**
+	 * Add the resources compiled by a compile command to the group of
+	 * resources sharing the same compiler probe.
+	 *
+	 * @param command The compile command, split into arguments.
+	 * @param groups Resources grouped by their compiler probe signatures.
+	 * @param locations Index to find the resources of the command.
+	 * @return Signatures of the groups created for this command.
+	 * @throws CoreException
+	 */
+	private List<CompilerProbeSignature> groupCompileCommand(
+			List<String> command,
+			Map<CompilerProbeSignature, List<IResource>> groups,
+			ResourceLocationIndex locations) throws CoreException {
+		List<CompilerProbeSignature> newGroups = new ArrayList<>();
 
 		/* Only work with known toolchain object */
 		IToolChain iTC = getToolChain();
 		if (!(iTC instanceof ZephyrGCCToolChain)) {
-			return;
+			return newGroups;
 		}
 		ZephyrGCCToolChain toolChain = (ZephyrGCCToolChain) iTC;
 
@@ -529,7 +1277,7 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 		loop: for (String arg : command) {
 			if (arg.startsWith("-")) { //$NON-NLS-1$
 				/* compiler option found, gone too far into the list */
-				return;
+				return newGroups;
 			}
 
 			for (String cc : compileCommands) {
@@ -539,35 +1287,117 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 			}
 		}
 
-		/* Add artifacts to the tuSelection so indexer can update these later */
-		IResource[] resources = getToolChain().getResourcesFromCommand(command,
-				getBuildDirectoryURI());
-		if (resources != null) {
-			for (IResource resource : resources) {
-				Path commandPath = findCommand(command.get(0));
-				if (commandPath == null) {
-					continue;
-				}
-				command.set(0, commandPath.toString());
+		IResource[] resources = toolChain.getResourcesFromCommand(command,
+				getBuildDirectoryURI(), locations);
+		if ((resources == null) || (resources.length == 0)) {
+			return newGroups;
+		}
 
-				/*
-				 * Note that this does not use the reference scanner info
-				 * object, as the command line already has everything to
-				 * parse the file correctly.
-				 */
-				IExtendedScannerInfo info = getToolChain().getScannerInfo(
+		Set<Path> sources = new HashSet<>();
+		for (IResource resource : resources) {
+			IPath location = resource.getLocation();
+			if (location != null) {
+				sources.add(location.toFile().toPath().normalize());
+			}
+		}
+
+		Path buildDirectory = getBuildDirectory();
+		for (IResource resource : resources) {
+			CompilerProbeSignature signature = new CompilerProbeSignature(
+					command, sources, buildDirectory,
+					resource.getFileExtension());
+			List<IResource> group = groups.get(signature);
+			if (group == null) {
+				group = new ArrayList<>();
+				groups.put(signature, group);
+				newGroups.add(signature);
+			}
+			group.add(resource);
+		}
+
+		return newGroups;
+	}
+
+	/**
+	 * Run the compiler probe for a group of resources.
+	 *
+	 * @param signature Signature of the compiler probe.
+	 * @param resource One of the resources of the group.
+	 * @param locations Index to find the resources of the command, may be
+	 *            null.
+	 * @return The discovered scanner info, or null if the probe failed.
+	 * @throws CoreException
+	 */
+	private IExtendedScannerInfo probeCompileCommandGroup(
+			CompilerProbeSignature signature, IResource resource,
+			ResourceLocationIndex locations) throws CoreException {
+
+		List<String> command = new ArrayList<>(signature.getCommand());
+		Path commandPath = findCommand(command.get(0));
+		if (commandPath == null) {
+			return null;
+		}
+		command.set(0, commandPath.toString());
+
+		/* Look for ccache being used, and skip it */
+		Path compilerPath = commandPath;
+		if (commandPath.toString().contains("ccache") //$NON-NLS-1$
+				&& (command.size() > 1)) {
+			compilerPath = findCommand(command.get(1));
+		}
+
+		/*
+		 * Take what is on the command line as-is, which only needs the
+		 * compiler to be run once for its builtins.
+		 */
+		IToolChain toolChain = getToolChain();
+		String mode = ZephyrProjectPreferences.getScannerDiscoveryMode(pStore);
+		if (ZephyrProjectPreferences.SCANNER_DISCOVERY_MODE_SYNTHESIZE
+				.equals(mode) && (toolChain instanceof ZephyrGCCToolChain)) {
+			IExtendedScannerInfo info = ((ZephyrGCCToolChain) toolChain)
+					.synthesizeScannerInfo(getBuildConfiguration(), command,
+							resource, getBuildDirectoryURI());
+			if (info != null) {
+				return ScannerInfoInterner.getDefault().intern(info);
+			}
+		}
+
+		/* The probe result may be known from an earlier build or project */
+		CompilerProbeCache probeCache =
+				ZephyrPlugin.getDefault().getCompilerProbeCache();
+		String probeKey = null;
+		if (compilerPath != null) {
+			Map<String, String> probeEnv = new TreeMap<>();
+			ZephyrHelpers.setupBuildCommandEnvironment(pStore, probeEnv);
+			probeKey = probeCache.computeKey(compilerPath, signature,
+					getBuildDirectory(), probeEnv);
+		}
+
+		IExtendedScannerInfo info = null;
+		if (probeKey != null) {
+			info = probeCache.get(probeKey);
+		}
+		if (info == null) {
+			/*
+			 * Note that this does not use the reference scanner info
+			 * object, as the command line already has everything to
+			 * parse the file correctly.
+			 */
+			if (toolChain instanceof ZephyrGCCToolChain) {
+				info = ((ZephyrGCCToolChain) toolChain).getScannerInfo(
 						getBuildConfiguration(), command, null, resource,
-						getBuildDirectoryURI());
-				scannerInfoCache.setScannerInfo(resource, info);
-				scannerInfoCache.setDefaultScannerInfo(resource, info);
-
-				ICElement element = CCorePlugin.getDefault().getCoreModel()
-						.create(resource);
-				if (element != null) {
-					tuSelection.add(element);
-				}
+						getBuildDirectoryURI(), locations);
+			} else {
+				info = toolChain.getScannerInfo(getBuildConfiguration(),
+						command, null, resource, getBuildDirectoryURI());
 			}
+
+			/* Share identical results, even across projects */
+			info = ScannerInfoInterner.getDefault().intern(info);
+			probeCache.put(probeKey, info);
 		}
+
+		return info;
 	}
 
 	@Override
@@ -575,22 +1405,208 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 		/* Nothing to do here. */
 	}
 
-	private void processCompileCommandsFile(IProgressMonitor monitor)
-			throws CoreException {
-		monitor.beginTask("Parsing compile commands...", 1);
+	private static void addTranslationUnits(IFile[] files,
+			List<ICElement> selection) {
+		for (IFile file : files) {
+			ICElement element =
+					CCorePlugin.getDefault().getCoreModel().create(file);
+			if (element != null) {
+				selection.add(element);
+			}
+		}
+	}
+
+	/**
+	 * Discover scanner info of the files in compile_commands.json, and
+	 * update the index for them.
+	 *
+	 * This is run by {@link ZephyrDiscoveryJob} after build.
+	 *
+	 * @param console Console of the build.
+	 * @param record Record of the build, to add the discovery counters to.
+	 * @param monitor Progress monitor.
+	 * @throws CoreException
+	 */
+	void processCompileCommandsFile(IConsole console, BuildRecord record,
+			IProgressMonitor monitor) throws CoreException {
+		SubMonitor subMonitor = SubMonitor.convert(monitor,
+				"Parsing compile commands...", 1);
+
+		/* Probes of other projects running meanwhile are counted as well */
+		CompilerProbeCache probeCache =
+				ZephyrPlugin.getDefault().getCompilerProbeCache();
+		long probeHits = probeCache.getHitCount();
+		long probeMisses = probeCache.getMissCount();
 
 		IProject project = getProject();
 		Path commandsFile =
 				getBuildDirectory().resolve("compile_commands.json"); //$NON-NLS-1$
+
+		/* Results of on-demand probes are outdated by the build */
+		boolean lazy = isLazyScannerDiscovery();
+		synchronized (lazyProbes) {
+			lazyIndex = null;
+			lazyProbes.clear();
+		}
+
 		if (Files.exists(commandsFile)) {
-			try (FileReader reader = new FileReader(commandsFile.toFile())) {
-				/* Parse the JSON file produced from CMake */
-				Gson gson = new Gson();
-				ArrayList<ICElement> tuSelection = new ArrayList<>();
-				CompileCommand[] commands =
-						gson.fromJson(reader, CompileCommand[].class);
-				for (CompileCommand command : commands) {
-					processCompileCommand(command.getCommand(), tuSelection);
+			try (CompilerProbeExecutor executor = new CompilerProbeExecutor(
+					ZephyrProjectPreferences.getScannerDiscoveryJobs(pStore))) {
+				/* Files whose scanner info has changed, or may have */
+				List<ICElement> tuSelection = new ArrayList<>();
+
+				/* Files which have only been modified */
+				List<ICElement> modifiedSelection = new ArrayList<>();
+				/*
+				 * Files modified since the build of the last discovery
+				 * started, aligned on the granularity of modification times
+				 * as files written at the same time may appear older.
+				 */
+				long lastDiscoveryTime = scannerInfoCache.getDiscoveryTime();
+				long discoveryTime = (buildStartTime != 0) ? buildStartTime
+						: System.currentTimeMillis();
+				discoveryTime -= discoveryTime
+						% BuildOutputRefresher.MTIME_GRANULARITY;
+
+				/* Only used for this pass, as links may change later */
+				ResourceLocationIndex locations =
+						new ResourceLocationIndex(project);
+
+				/*
+				 * Most files are compiled with the same flags, so group them
+				 * to only probe the compiler once for each set of flags.
+				 * The probe for a group is started as soon as the group is
+				 * found, while the rest of the file is still being read.
+				 *
+				 * Entries which have not changed since last time, and still
+				 * have their scanner info cached, do not need probing.
+				 *
+				 * In lazy mode, the groups are only recorded here, and each
+				 * group is probed when one of its files is first needed.
+				 */
+				Set<IResource> lazyReindex = new HashSet<>();
+				Map<String, String> oldDigests =
+						scannerInfoCache.getEntryDigests();
+				Map<String, String> newDigests = new TreeMap<>();
+				Map<CompilerProbeSignature, List<IResource>> groups =
+						new LinkedHashMap<>();
+				Map<CompilerProbeSignature, IExtendedScannerInfo> results =
+						new ConcurrentHashMap<>();
+				new CompileCommandsReader(commandsFile).read(command -> {
+					if (subMonitor.isCanceled()) {
+						throw new OperationCanceledException();
+					}
+
+					String file = command.getFilePath();
+					if (file == null) {
+						return;
+					}
+
+					/* Kconfig changes autoconf.h, not the command */
+					String digest = command.getDigest()
+							+ probeCache.getMacroFilesHash(
+									command.getArguments(),
+									getCommandDirectory(command));
+					newDigests.put(file, digest);
+					if (digest.equals(oldDigests.get(file))
+							&& scannerInfoCache.hasScannerInfo(file)) {
+						long modified = new File(file).lastModified();
+						if (modified >= lastDiscoveryTime) {
+							addTranslationUnits(locations.findFiles(
+									Paths.get(file)), modifiedSelection);
+						}
+						return;
+					}
+
+					if (lazy) {
+						/* Only files indexed with scanner info so far */
+						if (scannerInfoCache.hasScannerInfo(file)) {
+							Collections.addAll(lazyReindex,
+									locations.findFiles(Paths.get(file)));
+						}
+						scannerInfoCache.removeScannerInfo(file);
+						groupCompileCommand(command.getArguments(), groups,
+								locations);
+						return;
+					}
+
+					for (CompilerProbeSignature signature : groupCompileCommand(
+							command.getArguments(), groups, locations)) {
+						IResource resource = groups.get(signature).get(0);
+						executor.submit(() -> {
+							IExtendedScannerInfo info =
+									probeCompileCommandGroup(signature,
+											resource, locations);
+							if (info != null) {
+								results.put(signature, info);
+							}
+							return null;
+						});
+					}
+				});
+
+				if (lazy) {
+					lazyIndex = createLazyIndex(groups);
+				} else {
+					/* Each probe spawns the compiler, so run them in parallel */
+					subMonitor.setWorkRemaining(groups.size());
+					executor.awaitAll(subMonitor);
+					probeCache.writeCache();
+					record.setProbes(
+							probeCache.getMissCount() - probeMisses,
+							probeCache.getHitCount() - probeHits);
+				}
+
+				/*
+				 * Share the probe results within groups, and queue for
+				 * indexing. The configuration only needs to be checked by the
+				 * indexer if the scanner info has changed. In lazy mode, it is
+				 * not known yet, and only the files which had scanner info or
+				 * are open are indexed again, as that probes them.
+				 */
+				ScannerInfoInterner interner = ScannerInfoInterner.getDefault();
+				Set<IResource> openResources =
+						lazy ? getOpenResources() : Collections.emptySet();
+				groups.forEach((signature, resources) -> {
+					IExtendedScannerInfo info = results.get(signature);
+					for (IResource resource : resources) {
+						List<ICElement> selection = tuSelection;
+						if (!lazy) {
+							IExtendedScannerInfo oldInfo =
+									scannerInfoCache.getScannerInfo(resource);
+							if ((info != null)
+									&& (interner.intern(oldInfo) == info)) {
+								selection = modifiedSelection;
+							}
+
+							scannerInfoCache.setScannerInfo(resource, info);
+							scannerInfoCache.setDefaultScannerInfo(resource,
+									info);
+						} else if (!lazyReindex.contains(resource)
+								&& !openResources.contains(resource)) {
+							continue;
+						}
+
+						ICElement element = CCorePlugin.getDefault()
+								.getCoreModel().create(resource);
+						if (element != null) {
+							selection.add(element);
+						}
+					}
+				});
+
+				/* Evict files which are no longer being compiled */
+				boolean entriesChanged = !newDigests.equals(oldDigests);
+				for (String file : oldDigests.keySet()) {
+					if (newDigests.containsKey(file)) {
+						continue;
+					}
+
+					scannerInfoCache.removeScannerInfo(file);
+
+					/* Still existing files fall back to default scanner info */
+					addTranslationUnits(locations.findFiles(Paths.get(file)),
+							tuSelection);
 				}
 
 				/* Start indexer on compiler files */
@@ -602,9 +1618,31 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 									| IIndexManager.UPDATE_EXTERNAL_FILES_FOR_PROJECT
 									| IIndexManager.UPDATE_CHECK_CONTENTS_HASH
 									| IIndexManager.UPDATE_UNRESOLVED_INCLUDES);
+				}
+
+				/* Same scanner info, so only the timestamps need checking */
+				if (!modifiedSelection.isEmpty()) {
+					CCorePlugin.getIndexManager().update(
+							modifiedSelection.toArray(new ICElement[0]),
+							IIndexManager.UPDATE_CHECK_TIMESTAMPS);
+				}
+				scannerInfoCache.setDiscoveryTime(discoveryTime);
+				record.setFilesIndexed(
+						tuSelection.size() + modifiedSelection.size());
 
+				if (!tuSelection.isEmpty() || !modifiedSelection.isEmpty()
+						|| entriesChanged) {
+					scannerInfoCache.setEntryDigests(newDigests);
 					scannerInfoCache.writeCache();
 				}
+
+				console.getInfoStream().write(
+						scannerInfoCache.getHeapUsageReport()
+								+ System.lineSeparator());
+				console.getInfoStream().write(String.format(
+						"Command lookups: %d cached, %d searched%n",
+						CommandResolver.getHitCount(),
+						CommandResolver.getMissCount()));
 			} catch (IOException e) {
 				throw new CoreException(ZephyrHelpers.errorStatus(String.format(
 						"Cannot parse compiler commands from CMake for project %s",
@@ -612,8 +1650,23 @@ public class ZephyrApplicationBuildConfiguration extends CBuildConfiguration {
 			}
 		}
 
-		monitor.worked(1);
-		monitor.done();
+		subMonitor.done();
+	}
+
+	/**
+	 * @return Directory relative paths of a compile command are resolved
+	 *         against.
+	 */
+	private Path getCommandDirectory(CompileCommand command)
+			throws CoreException {
+		if (command.getDirectory() != null) {
+			try {
+				return Paths.get(command.getDirectory());
+			} catch (InvalidPathException e) {
+				/* Fall back to where the build runs */
+			}
+		}
+		return getBuildDirectory();
 	}
 
 	private void parseCMakeCache(IProject project, Path buildDir)
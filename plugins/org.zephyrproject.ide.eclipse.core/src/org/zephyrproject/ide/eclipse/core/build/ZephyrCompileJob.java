@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.build;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.resources.IConsole;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.zephyrproject.ide.eclipse.core.internal.ZephyrHelpers;
+
+/**
+ * Job compiling the objects affected by some files of a Zephyr application,
+ * without building the whole project.
+ *
+ * The jobs of a project run one at a time. They do not lock the workspace,
+ * so saving files is not blocked while compiling. Instead, a job does
+ * nothing if a build is scheduled or running, and a build or clean cancels
+ * the job and waits for it to stop before running ninja or make in the
+ * build directory.
+ */
+public class ZephyrCompileJob extends Job {
+
+	private final IProject project;
+
+	private final Set<IFile> files;
+
+	private final boolean onSave;
+
+	private final ProjectRule rule;
+
+	/**
+	 * Scheduling rule, and job family, of the compile jobs of a project.
+	 */
+	private static final class ProjectRule implements ISchedulingRule {
+
+		private final IProject project;
+
+		private ProjectRule(IProject project) {
+			this.project = project;
+		}
+
+		@Override
+		public boolean contains(ISchedulingRule rule) {
+			return equals(rule);
+		}
+
+		@Override
+		public boolean isConflicting(ISchedulingRule rule) {
+			return equals(rule);
+		}
+
+		@Override
+		public int hashCode() {
+			return project.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof ProjectRule)
+					&& project.equals(((ProjectRule) obj).project);
+		}
+
+	}
+
+	/**
+	 * @param project The project.
+	 * @param files The files to compile, or whose dependent sources to
+	 *            compile.
+	 * @param onSave True if compiling because the files were saved, to
+	 *            only report the compilation itself.
+	 */
+	public ZephyrCompileJob(IProject project, Collection<IFile> files,
+			boolean onSave) {
+		super(String.format("Compiling %s", (files.size() == 1)
+				? files.iterator().next().getName()
+				: project.getName()));
+		this.project = project;
+		this.files = Collections
+				.unmodifiableSet(new LinkedHashSet<>(files));
+		this.onSave = onSave;
+		this.rule = new ProjectRule(project);
+
+		setRule(rule);
+		setPriority(Job.SHORT);
+	}
+
+	/**
+	 * @return The files of the job.
+	 */
+	public Set<IFile> getFiles() {
+		return files;
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		try {
+			/* The build compiles the files anyway */
+			if (isBuilding()) {
+				if (!onSave) {
+					IConsole console = CCorePlugin.getDefault().getConsole();
+					console.start(project);
+					console.getOutputStream().write(String.format(
+							"----- Not compiling %s while building%n",
+							project.getName()));
+				}
+				return Status.CANCEL_STATUS;
+			}
+
+			IConsole console = CCorePlugin.getDefault().getConsole();
+			console.start(project);
+
+			ZephyrApplicationBuildConfiguration config =
+					ZephyrHelpers.Build.getZephyrBuildConfiguration(project);
+			if ((config.compileFiles(files, console, monitor) < 0)
+					&& !onSave) {
+				/* Not on save, where it is the case of most headers */
+				List<String> names = new ArrayList<>();
+				for (IFile file : files) {
+					names.add(file.getProjectRelativePath().toString());
+				}
+				console.getErrorStream().write(String.format(
+						"----- No compile command for %s, build the project first%n",
+						String.join(", ", names))); //$NON-NLS-1$
+			}
+		} catch (CoreException e) {
+			return e.getStatus();
+		} catch (IOException e) {
+			return ZephyrHelpers.errorStatus(String.format(
+					"Error compiling %s!", project.getName()), e);
+		}
+
+		return monitor.isCanceled() ? Status.CANCEL_STATUS
+				: Status.OK_STATUS;
+	}
+
+	private static boolean isBuilding() {
+		return (Job.getJobManager()
+				.find(ResourcesPlugin.FAMILY_MANUAL_BUILD).length > 0)
+				|| (Job.getJobManager()
+						.find(ResourcesPlugin.FAMILY_AUTO_BUILD).length > 0);
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return rule.equals(family);
+	}
+
+	/**
+	 * Cancel the compilation of a project, e.g. when it is being superseded
+	 * by a new build.
+	 *
+	 * @param project The project.
+	 */
+	public static void cancelFor(IProject project) {
+		Job.getJobManager().cancel(new ProjectRule(project));
+	}
+
+	/**
+	 * Wait for the compilation of a project to finish.
+	 *
+	 * @param project The project.
+	 * @param monitor Progress monitor to cancel waiting, may be null.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public static void joinFor(IProject project, IProgressMonitor monitor)
+			throws InterruptedException {
+		Job.getJobManager().join(new ProjectRule(project), monitor);
+	}
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.build;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.zephyrproject.ide.eclipse.core.ZephyrApplicationNature;
+import org.zephyrproject.ide.eclipse.core.internal.ZephyrHelpers;
+import org.zephyrproject.ide.eclipse.core.preferences.ZephyrProjectPreferences;
+
+/**
+ * Compile the objects affected by saved files in the background, for the
+ * projects which enable it.
+ *
+ * Saves are collected for a short while before compiling, so saving
+ * several files at once compiles them together. A new save cancels the
+ * compilation still pending or running, and the files it had not compiled
+ * yet are compiled along with the new ones. Nothing is linked; the launches
+ * build the project, which does.
+ */
+public class ZephyrCompileOnSave implements IResourceChangeListener {
+
+	/* Milliseconds to wait for more saves before compiling */
+	private static final long DEBOUNCE_DELAY = 500;
+
+	/* Last compile job scheduled for each project */
+	private final Map<IProject, ZephyrCompileJob> jobs = new HashMap<>();
+
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		if ((event.getType() == IResourceChangeEvent.PRE_CLOSE)
+				|| (event.getType() == IResourceChangeEvent.PRE_DELETE)) {
+			if (event.getResource() instanceof IProject) {
+				forget((IProject) event.getResource());
+			}
+			return;
+		}
+
+		IResourceDelta delta = event.getDelta();
+		if (delta == null) {
+			return;
+		}
+
+		Map<IProject, Set<IFile>> changed = new LinkedHashMap<>();
+		try {
+			delta.accept(d -> {
+				IResource resource = d.getResource();
+				if (resource.getType() == IResource.PROJECT) {
+					return isEnabled((IProject) resource);
+				}
+
+				if (resource.getType() == IResource.FILE) {
+					if (isChanged(d) && isCompiled((IFile) resource)) {
+						changed.computeIfAbsent(resource.getProject(),
+								p -> new LinkedHashSet<>())
+								.add((IFile) resource);
+					}
+					return false;
+				}
+
+				return !resource.isDerived();
+			});
+		} catch (CoreException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		for (Map.Entry<IProject, Set<IFile>> e : changed.entrySet()) {
+			schedule(e.getKey(), e.getValue());
+		}
+	}
+
+	private synchronized void schedule(IProject project, Set<IFile> files) {
+		ZephyrCompileJob previous = jobs.get(project);
+		if (previous != null) {
+			previous.cancel();
+
+			/* Compile again what the previous job may not have */
+			IStatus result = previous.getResult();
+			if ((result == null) || !result.isOK()) {
+				Set<IFile> merged = new LinkedHashSet<>(previous.getFiles());
+				merged.addAll(files);
+				files = merged;
+			}
+		}
+
+		ZephyrCompileJob job = new ZephyrCompileJob(project, files, true);
+		job.setSystem(true);
+		job.addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(IJobChangeEvent event) {
+				/* Nothing left to compile again */
+				if (event.getResult().isOK()) {
+					synchronized (ZephyrCompileOnSave.this) {
+						jobs.remove(project, job);
+					}
+				}
+			}
+		});
+		jobs.put(project, job);
+		job.schedule(DEBOUNCE_DELAY);
+	}
+
+	/**
+	 * Drop the compilation of a project being closed or deleted.
+	 */
+	private synchronized void forget(IProject project) {
+		ZephyrCompileJob job = jobs.remove(project);
+		if (job != null) {
+			job.cancel();
+		}
+	}
+
+	private static boolean isEnabled(IProject project) {
+		try {
+			return project.isOpen()
+					&& project.hasNature(ZephyrApplicationNature.NATURE_ID)
+					&& ZephyrProjectPreferences.isCompileOnSave(
+							ZephyrHelpers.getProjectPreferenceStore(project));
+		} catch (CoreException e) {
+			return false;
+		}
+	}
+
+	private static boolean isChanged(IResourceDelta delta) {
+		return (delta.getKind() == IResourceDelta.ADDED)
+				|| ((delta.getKind() == IResourceDelta.CHANGED)
+						&& ((delta.getFlags() & IResourceDelta.CONTENT) != 0));
+	}
+
+	/**
+	 * Check if a file may be compiled, or included by compiled files.
+	 */
+	private static boolean isCompiled(IFile file) {
+		if (file.isDerived()) {
+			return false;
+		}
+
+		/* Outputs of the build, which the build itself updates */
+		IPath buildDir = new Path(
+				ZephyrProjectPreferences.getBuildDirectory(file.getProject()));
+		if (buildDir.isPrefixOf(file.getProjectRelativePath())) {
+			return false;
+		}
+
+		return CoreModel.isValidTranslationUnitName(file.getProject(),
+				file.getName());
+	}
+
+}
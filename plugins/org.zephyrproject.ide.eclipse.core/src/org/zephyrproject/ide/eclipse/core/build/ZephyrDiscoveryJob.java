@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.build;
+
+import org.eclipse.cdt.core.resources.IConsole;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.zephyrproject.ide.eclipse.core.internal.build.BuildRecord;
+
+/**
+ * Background job for scanner discovery after build.
+ *
+ * Compiler probes and indexer updates are done here instead of in the
+ * builder, so the workspace is not locked while they run. The job does not
+ * lock any resources either. It only conflicts with other discovery jobs
+ * of the same project.
+ *
+ * Once done, even if cancelled before running, the job adds the record of
+ * its build to the build history.
+ */
+public class ZephyrDiscoveryJob extends Job {
+
+	/**
+	 * Job family of all scanner discovery jobs.
+	 */
+	public static final Object FAMILY = new Object();
+
+	private final ZephyrApplicationBuildConfiguration config;
+
+	private final IConsole console;
+
+	private final BuildRecord record;
+
+	private final ProjectRule rule;
+
+	/**
+	 * Scheduling rule, and job family, of the discovery jobs of a project.
+	 */
+	private static final class ProjectRule implements ISchedulingRule {
+
+		private final IProject project;
+
+		private ProjectRule(IProject project) {
+			this.project = project;
+		}
+
+		@Override
+		public boolean contains(ISchedulingRule rule) {
+			return equals(rule);
+		}
+
+		@Override
+		public boolean isConflicting(ISchedulingRule rule) {
+			return equals(rule);
+		}
+
+		@Override
+		public int hashCode() {
+			return project.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof ProjectRule)
+					&& project.equals(((ProjectRule) obj).project);
+		}
+
+	}
+
+	/**
+	 * @param config Build configuration which has just been built.
+	 * @param console Console of the build.
+	 * @param record Record of the build.
+	 */
+	public ZephyrDiscoveryJob(ZephyrApplicationBuildConfiguration config,
+			IConsole console, BuildRecord record) {
+		super(String.format("Discovering scanner info for %s",
+				config.getProject().getName()));
+		this.config = config;
+		this.console = console;
+		this.record = record;
+		this.rule = new ProjectRule(config.getProject());
+
+		setRule(rule);
+		setPriority(Job.BUILD);
+
+		addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(IJobChangeEvent event) {
+				int severity = event.getResult().getSeverity();
+				if (severity == IStatus.CANCEL) {
+					record.setResult(BuildRecord.RESULT_CANCELLED);
+				} else if (severity == IStatus.ERROR) {
+					record.setResult(BuildRecord.RESULT_FAILED);
+				}
+				config.recordBuild(record, console);
+			}
+		});
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		long start = System.nanoTime();
+		try {
+			config.processCompileCommandsFile(console, record, monitor);
+		} catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (CoreException e) {
+			return e.getStatus();
+		} finally {
+			record.addPhase("discovery", start); //$NON-NLS-1$
+		}
+
+		return Status.OK_STATUS;
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return (family == FAMILY) || rule.equals(family);
+	}
+
+	/**
+	 * Cancel the scanner discovery of a project, e.g. when it is being
+	 * superseded by a new build.
+	 *
+	 * @param project The project.
+	 */
+	public static void cancelFor(IProject project) {
+		Job.getJobManager().cancel(new ProjectRule(project));
+	}
+
+	/**
+	 * Wait for the scanner discovery of a project to finish.
+	 *
+	 * @param project The project.
+	 * @param monitor Progress monitor to cancel waiting, may be null.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public static void joinFor(IProject project, IProgressMonitor monitor)
+			throws InterruptedException {
+		Job.getJobManager().join(new ProjectRule(project), monitor);
+	}
+
+	/**
+	 * @param project The project.
+	 * @return True if scanner discovery of the project is scheduled or
+	 *         running.
+	 */
+	public static boolean isRunningFor(IProject project) {
+		return Job.getJobManager().find(new ProjectRule(project)).length > 0;
+	}
+
+}
@@ -7,7 +7,6 @@
 package org.zephyrproject.ide.eclipse.core.build.toolchain;
 
 import java.io.BufferedReader;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URI;
@@ -15,13 +14,19 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -46,8 +51,12 @@ import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.PlatformObject;
 import org.eclipse.ui.preferences.ScopedPreferenceStore;
 import org.zephyrproject.ide.eclipse.core.ZephyrPlugin;
+import org.zephyrproject.ide.eclipse.core.internal.CommandResolver;
+import org.zephyrproject.ide.eclipse.core.internal.IZephyrEventRecorder.Span;
+import org.zephyrproject.ide.eclipse.core.internal.ZephyrEvents;
 import org.zephyrproject.ide.eclipse.core.internal.ZephyrHelpers;
 import org.zephyrproject.ide.eclipse.core.internal.build.CMakeCache;
+import org.zephyrproject.ide.eclipse.core.internal.build.ResourceLocationIndex;
 
 /**
  * GCC-compatible Zephyr toolchain.
@@ -69,6 +78,51 @@ public class ZephyrGCCToolChain extends PlatformObject implements IToolChain {
 	private final Map<String, String> properties = new HashMap<>();
 	private final HashMap<String, String> cmakeCacheMap = new HashMap<>();
 
+	/* Compiler options taking the next argument as value */
+	private static final Set<String> OPTIONS_WITH_ARGUMENT =
+			new HashSet<>(Arrays.asList("-o", "-x", "-D", "-U", "-I", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+					"-include", "-imacros", "-isystem", "-iquote", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					"-idirafter", "-isysroot", "--sysroot", "-specs", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					"--specs", "-MF", "-MT", "-MQ", "-Xassembler", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+					"-Xlinker", "-Xpreprocessor")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	/* Options parsed into scanner info, longest first for prefix matching */
+	private static final String[] PREPROCESSOR_OPTIONS = { "-idirafter", //$NON-NLS-1$
+		"-imacros", "-include", "-isystem", "-iquote", "-D", "-U", "-I" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+
+	/* -f options changing the builtin macros, with or without a value */
+	private static final Set<String> MACRO_F_OPTIONS = new HashSet<>(
+			Arrays.asList("-fshort-wchar", "-fno-short-wchar", //$NON-NLS-1$ //$NON-NLS-2$
+					"-fsigned-char", "-fno-signed-char", "-funsigned-char", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					"-fno-unsigned-char", "-fexceptions", "-fno-exceptions", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					"-frtti", "-fno-rtti", "-fpic", "-fPIC", "-fpie", "-fPIE", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+					"-fno-pic", "-fno-PIC", "-fno-pie", "-fno-PIE", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					"-fstack-protector", "-fstack-protector-all", //$NON-NLS-1$ //$NON-NLS-2$
+					"-fstack-protector-strong", "-fstack-protector-explicit", //$NON-NLS-1$ //$NON-NLS-2$
+					"-fno-stack-protector", "-ffreestanding", "-fhosted", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					"-fno-hosted", "-fopenmp", "-fopenmp-simd", "-fopenacc", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					"-ffast-math", "-fno-fast-math", "-fmath-errno", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					"-fno-math-errno", "-ffinite-math-only", //$NON-NLS-1$ //$NON-NLS-2$
+					"-fno-finite-math-only", "-freciprocal-math", //$NON-NLS-1$ //$NON-NLS-2$
+					"-fno-signed-zeros", "-fno-trapping-math", //$NON-NLS-1$ //$NON-NLS-2$
+					"-fassociative-math", "-fsanitize", "-fno-sanitize", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					"-fno-inline", "-fgnu89-inline", //$NON-NLS-1$ //$NON-NLS-2$
+					"-fsingle-precision-constant", "-fcf-protection", //$NON-NLS-1$ //$NON-NLS-2$
+					"-fchar8_t", "-fno-char8_t", "-fcoroutines", "-fconcepts", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					"-fgnu-tm")); //$NON-NLS-1$
+
+	/* Optimization levels, which define __OPTIMIZE__ and the like */
+	private static final Pattern OPTIMIZE_OPTION_PATTERN =
+			Pattern.compile("-O([0-3sgz]|fast)?"); //$NON-NLS-1$
+
+	/*
+	 * Builtin macros and include paths, by compiler, its size and
+	 * modification time, and target options
+	 */
+	private final Map<String,
+			CompletableFuture<IExtendedScannerInfo>> builtinScannerInfo =
+					new ConcurrentHashMap<>();
+
 	public ZephyrGCCToolChain(String id) {
 		this.id = id;
 
@@ -175,15 +229,7 @@ public class ZephyrGCCToolChain extends PlatformObject implements IToolChain {
 		IEnvironmentVariable myPath = getVariable("PATH"); //$NON-NLS-1$
 		String path =
 				myPath != null ? myPath.getValue() : System.getenv("PATH"); //$NON-NLS-1$
-		for (String entry : path.split(File.pathSeparator)) {
-			Path entryPath = Paths.get(entry);
-			Path cmdPath = entryPath.resolve(command);
-			if (Files.isExecutable(cmdPath)) {
-				return cmdPath;
-			}
-		}
-
-		return null;
+		return CommandResolver.resolve(path, command.toString());
 	}
 
 	@Override
@@ -218,12 +264,41 @@ public class ZephyrGCCToolChain extends PlatformObject implements IToolChain {
 		}
 	}
 
+	/**
+	 * Find the workspace files for a location.
+	 *
+	 * @param location Absolute normalized path of the file.
+	 * @param index Index to look up the location, null to look it up in the
+	 *            workspace root.
+	 */
+	private static IFile[] findFiles(Path location,
+			ResourceLocationIndex index) {
+		if (index != null) {
+			return index.findFiles(location);
+		}
+
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		return root.findFilesForLocationURI(location.toUri());
+	}
+
 	@Override
 	public IResource[] getResourcesFromCommand(List<String> cmd,
 			URI buildDirectoryURI) {
+		return getResourcesFromCommand(cmd, buildDirectoryURI, null);
+	}
+
+	/**
+	 * Get the source files compiled by a command.
+	 *
+	 * @param cmd The compile command, split into arguments.
+	 * @param buildDirectoryURI Directory where the command is run.
+	 * @param index Index to look up the source files, may be null.
+	 * @return The source files.
+	 */
+	public IResource[] getResourcesFromCommand(List<String> cmd,
+			URI buildDirectoryURI, ResourceLocationIndex index) {
 		/* Start at the back looking for arguments */
 		List<IResource> resources = new ArrayList<>();
-		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
 		for (int i = cmd.size() - 1; i >= 0; --i) {
 			String arg = cmd.get(i);
 			if (arg.startsWith("-")) { //$NON-NLS-1$
@@ -236,16 +311,10 @@ public class ZephyrGCCToolChain extends PlatformObject implements IToolChain {
 				continue;
 			}
 			try {
-				Path srcPath = Paths.get(arg);
-				URI uri;
-				if (srcPath.isAbsolute()) {
-					uri = srcPath.toUri();
-				} else {
-					uri = Paths.get(buildDirectoryURI).resolve(srcPath).toUri()
-							.normalize();
-				}
+				Path srcPath = Paths.get(buildDirectoryURI).resolve(arg)
+						.normalize();
 
-				for (IFile resource : root.findFilesForLocationURI(uri)) {
+				for (IFile resource : findFiles(srcPath, index)) {
 					resources.add(resource);
 				}
 			} catch (IllegalArgumentException e) {
@@ -354,6 +423,21 @@ public class ZephyrGCCToolChain extends PlatformObject implements IToolChain {
 	public IExtendedScannerInfo getScannerInfo(IBuildConfiguration buildConfig,
 			List<String> commandStrings, IExtendedScannerInfo baseScannerInfo,
 			IResource resource, URI buildDirectoryURI) {
+		return getScannerInfo(buildConfig, commandStrings, baseScannerInfo,
+				resource, buildDirectoryURI, null);
+	}
+
+	/**
+	 * Run the compiler probe for a compile command.
+	 *
+	 * @param index Index to look up the source file, may be null.
+	 * @see IToolChain#getScannerInfo(IBuildConfiguration, List,
+	 *      IExtendedScannerInfo, IResource, URI)
+	 */
+	public IExtendedScannerInfo getScannerInfo(IBuildConfiguration buildConfig,
+			List<String> commandStrings, IExtendedScannerInfo baseScannerInfo,
+			IResource resource, URI buildDirectoryURI,
+			ResourceLocationIndex index) {
 
 		try {
 			Path buildDirectory = Paths.get(buildDirectoryURI);
@@ -378,15 +462,8 @@ public class ZephyrGCCToolChain extends PlatformObject implements IToolChain {
 			commandLine.addAll(
 					commandStrings.subList(offset + 1, commandStrings.size()));
 
-			/* Strip surrounding quotes from the args on Windows */
-			if (Platform.OS_WIN32.equals(Platform.getOS())) {
-				for (int i = 0; i < commandLine.size(); i++) {
-					String arg = commandLine.get(i);
-					if (arg.startsWith("\"") && arg.endsWith("\"")) { //$NON-NLS-1$ //$NON-NLS-2$
-						commandLine.set(i, arg.substring(1, arg.length() - 1));
-					}
-				}
-			}
+			stripQuotes(commandLine);
+
 			/* Change output to stdout */
 			boolean haveOut = false;
 			for (int i = 1; i < commandLine.size() - 1; ++i) {
@@ -417,8 +494,8 @@ public class ZephyrGCCToolChain extends PlatformObject implements IToolChain {
 				includeFiles = new HashSet<>();
 			}
 
-			/* Change source file to a tmp file (needs to be empty) */
-			Path tmpFile = null;
+			/* Remove the source file, the probe uses an empty one instead */
+			String extension = null;
 			for (int i = 1; i < commandLine.size(); ++i) {
 				String arg = commandLine.get(i);
 				if (!arg.startsWith("-")) { //$NON-NLS-1$
@@ -429,19 +506,13 @@ public class ZephyrGCCToolChain extends PlatformObject implements IToolChain {
 						continue;
 					}
 
-					IFile[] files = ResourcesPlugin.getWorkspace().getRoot()
-							.findFilesForLocationURI(filePath.toUri());
+					IFile[] files = findFiles(filePath, index);
 					if ((files.length > 0) && files[0].exists()) {
-						/* replace it with a tmp file */
-						String extension = files[0].getFileExtension();
+						extension = files[0].getFileExtension();
 						if (extension == null) {
-							extension = ".c"; //$NON-NLS-1$
-						} else {
-							extension = '.' + extension;
+							extension = "c"; //$NON-NLS-1$
 						}
-						tmpFile = Files.createTempFile(buildDirectory, ".sc", //$NON-NLS-1$
-								extension);
-						commandLine.set(i, tmpFile.toString());
+						commandLine.remove(i--);
 					}
 				} else {
 					switch (arg) {
@@ -470,21 +541,394 @@ public class ZephyrGCCToolChain extends PlatformObject implements IToolChain {
 					}
 				}
 			}
-			if (tmpFile == null) {
+			if (extension == null) {
 				/* No source file found in command line, so skip */
 				return null;
 			}
-			return getScannerInfo(buildConfig, commandLine, buildDirectory,
-					tmpFile, includePaths, macroFiles, includeFiles);
+			return probeEmptySource(buildConfig, commandLine, buildDirectory,
+					extension, includePaths, macroFiles, includeFiles);
 		} catch (IOException e) {
 			return null;
 		}
 	}
 
-	private IExtendedScannerInfo getScannerInfo(IBuildConfiguration buildConfig,
-			List<String> commandLine, Path buildDirectory, Path tmpFile,
+	/**
+	 * Strip surrounding quotes from the args on Windows.
+	 */
+	private static void stripQuotes(List<String> commandLine) {
+		if (Platform.OS_WIN32.equals(Platform.getOS())) {
+			for (int i = 0; i < commandLine.size(); i++) {
+				String arg = commandLine.get(i);
+				if (arg.startsWith("\"") && arg.endsWith("\"")) { //$NON-NLS-1$ //$NON-NLS-2$
+					commandLine.set(i, arg.substring(1, arg.length() - 1));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check if a compiler option changes the builtin macros or the system
+	 * include paths of the compiler.
+	 */
+	private static boolean isTargetOption(String arg) {
+		return arg.startsWith("-m") || arg.startsWith("-std=") //$NON-NLS-1$ //$NON-NLS-2$
+				|| arg.startsWith("--sysroot") || arg.startsWith("-isysroot") //$NON-NLS-1$ //$NON-NLS-2$
+				|| arg.startsWith("-specs") || arg.startsWith("--specs") //$NON-NLS-1$ //$NON-NLS-2$
+				|| arg.startsWith("-nostdinc") || isMacroFOption(arg) //$NON-NLS-1$
+				|| OPTIMIZE_OPTION_PATTERN.matcher(arg).matches()
+				|| arg.equals("-x") || arg.equals("-ansi") //$NON-NLS-1$ //$NON-NLS-2$
+				|| arg.equals("-undef") || arg.equals("-pthread"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Check if a -f option changes the builtin macros. Most of them, like
+	 * -ffunction-sections or -fdiagnostics-color, do not.
+	 */
+	private static boolean isMacroFOption(String arg) {
+		if (!arg.startsWith("-f")) { //$NON-NLS-1$
+			return false;
+		}
+
+		int eq = arg.indexOf('=');
+		return MACRO_F_OPTIONS.contains((eq < 0) ? arg : arg.substring(0, eq));
+	}
+
+	private static String resolvePath(Path buildDirectory, String path) {
+		try {
+			return buildDirectory.resolve(path).normalize().toAbsolutePath()
+					.toString();
+		} catch (InvalidPathException e) {
+			return path;
+		}
+	}
+
+	/**
+	 * Create the scanner info of a compile command without running the
+	 * compiler for it.
+	 *
+	 * Macros, include paths, macro files and include files given on the
+	 * command line are parsed directly. Only the builtin macros and the
+	 * system include paths need a compiler run, which is done once for
+	 * each compiler and set of target options (-m*, -std, --sysroot, etc.)
+	 * and cached.
+	 *
+	 * @param buildConfig The build configuration.
+	 * @param commandStrings The compile command, split into arguments.
+	 * @param resource The source file compiled by the command.
+	 * @param buildDirectoryURI Directory where the command is run.
+	 * @return The scanner info, or null if it cannot be created.
+	 */
+	public IExtendedScannerInfo synthesizeScannerInfo(
+			IBuildConfiguration buildConfig, List<String> commandStrings,
+			IResource resource, URI buildDirectoryURI) {
+		Path buildDirectory = Paths.get(buildDirectoryURI);
+
+		int offset = 0;
+		Path command = Paths.get(commandStrings.get(offset));
+
+		/* look for ccache being used, and skip it */
+		if (command.toString().contains("ccache") //$NON-NLS-1$
+				&& (commandStrings.size() > 1)) {
+			command = Paths.get(commandStrings.get(++offset));
+		}
+
+		if (!command.isAbsolute()) {
+			command = getCommandPath(command);
+			if (command == null) {
+				return null;
+			}
+		}
+
+		List<String> args = new ArrayList<>(
+				commandStrings.subList(offset + 1, commandStrings.size()));
+		stripQuotes(args);
+
+		List<String> targetOptions = new ArrayList<>();
+		for (int i = 0; i < args.size(); i++) {
+			String arg = args.get(i);
+			boolean hasArgument = OPTIONS_WITH_ARGUMENT.contains(arg)
+					&& (i + 1 < args.size());
+			if (isTargetOption(arg)) {
+				targetOptions.add(arg);
+				if (hasArgument) {
+					targetOptions.add(args.get(++i));
+				}
+			} else if (hasArgument) {
+				i++;
+			}
+		}
+
+		String extension = resource.getFileExtension();
+		if (extension == null) {
+			extension = "c"; //$NON-NLS-1$
+		}
+
+		IExtendedScannerInfo builtins = getBuiltinScannerInfo(buildConfig,
+				command, targetOptions, extension, buildDirectory);
+		if (builtins == null) {
+			return null;
+		}
+
+		/* Options are applied in command line order, after the builtins */
+		Map<String, String> symbols =
+				new HashMap<>(builtins.getDefinedSymbols());
+		Set<String> quotePaths = new LinkedHashSet<>();
+		Set<String> includePaths = new LinkedHashSet<>();
+		Set<String> systemPaths = new LinkedHashSet<>();
+		Set<String> afterPaths = new LinkedHashSet<>();
+		Set<String> macroFiles = new LinkedHashSet<>();
+		Set<String> includeFiles = new LinkedHashSet<>();
+		for (int i = 0; i < args.size(); i++) {
+			String arg = args.get(i);
+			if (!arg.startsWith("-")) { //$NON-NLS-1$
+				continue;
+			}
+
+			String option = null;
+			String value = null;
+			for (String opt : PREPROCESSOR_OPTIONS) {
+				if (arg.equals(opt)) {
+					option = opt;
+					value = (i + 1 < args.size()) ? args.get(++i) : null;
+					break;
+				} else if (arg.startsWith(opt)) {
+					option = opt;
+					value = arg.substring(opt.length());
+					break;
+				}
+			}
+
+			if (option == null) {
+				if (OPTIONS_WITH_ARGUMENT.contains(arg)) {
+					i++;
+				}
+				continue;
+			}
+			if ((value == null) || value.isEmpty()) {
+				continue;
+			}
+
+			switch (option) {
+			case "-D": //$NON-NLS-1$
+				int eq = value.indexOf('=');
+				if (eq < 0) {
+					symbols.put(value, "1"); //$NON-NLS-1$
+				} else {
+					symbols.put(value.substring(0, eq),
+							value.substring(eq + 1));
+				}
+				break;
+			case "-U": //$NON-NLS-1$
+				symbols.remove(value);
+				break;
+			case "-I": //$NON-NLS-1$
+				includePaths.add(resolvePath(buildDirectory, value));
+				break;
+			case "-isystem": //$NON-NLS-1$
+				systemPaths.add(resolvePath(buildDirectory, value));
+				break;
+			case "-idirafter": //$NON-NLS-1$
+				afterPaths.add(resolvePath(buildDirectory, value));
+				break;
+			case "-iquote": //$NON-NLS-1$
+				quotePaths.add(resolvePath(buildDirectory, value));
+				break;
+			case "-imacros": //$NON-NLS-1$
+				if (value.startsWith("=")) { //$NON-NLS-1$
+					value = value.substring(1);
+				}
+				macroFiles.add(resolvePath(buildDirectory, value));
+				break;
+			case "-include": //$NON-NLS-1$
+				includeFiles.add(resolvePath(buildDirectory, value));
+				break;
+			}
+		}
+
+		/* Same search order as the compiler */
+		includePaths.addAll(systemPaths);
+		includePaths.addAll(Arrays.asList(builtins.getIncludePaths()));
+		includePaths.addAll(afterPaths);
+
+		return new ExtendedScannerInfo(symbols,
+				includePaths.toArray(new String[0]),
+				macroFiles.toArray(new String[0]),
+				includeFiles.toArray(new String[0]),
+				quotePaths.toArray(new String[0]));
+	}
+
+	/**
+	 * Get the builtin macros and system include paths of a compiler.
+	 *
+	 * The compiler is only run once for each set of target options, and
+	 * concurrent requests wait for that run. A compiler whose size or
+	 * modification time changes, like after an SDK upgrade, is run again.
+	 */
+	private IExtendedScannerInfo getBuiltinScannerInfo(
+			IBuildConfiguration buildConfig, Path compiler,
+			List<String> targetOptions, String extension,
+			Path buildDirectory) {
+		String compilerKey = compiler.toString() + '\0';
+		String stampKey;
+		try {
+			BasicFileAttributes attrs =
+					Files.readAttributes(compiler, BasicFileAttributes.class);
+			stampKey = compilerKey + attrs.size() + '\0'
+					+ attrs.lastModifiedTime().toMillis() + '\0';
+		} catch (IOException e) {
+			return null;
+		}
+		String key = stampKey + extension + '\0'
+				+ String.join("\0", targetOptions); //$NON-NLS-1$
+
+		CompletableFuture<IExtendedScannerInfo> probe =
+				new CompletableFuture<>();
+		CompletableFuture<IExtendedScannerInfo> running =
+				builtinScannerInfo.putIfAbsent(key, probe);
+		if (running != null) {
+			try {
+				return running.join();
+			} catch (CompletionException | CancellationException e) {
+				builtinScannerInfo.remove(key, running);
+				return null;
+			}
+		}
+
+		/* Forget the results of the compiler before it changed */
+		builtinScannerInfo.keySet().removeIf(
+				k -> k.startsWith(compilerKey) && !k.startsWith(stampKey));
+
+		IExtendedScannerInfo info = null;
+		try {
+			List<String> commandLine = new ArrayList<>();
+			commandLine.add(compiler.toString());
+			commandLine.addAll(targetOptions);
+			addDiscoveryOptions(commandLine);
+			commandLine.add("-o"); //$NON-NLS-1$
+			commandLine.add("-"); //$NON-NLS-1$
+
+			info = probeEmptySource(buildConfig, commandLine, buildDirectory,
+					extension, null, null, null);
+		} catch (IOException e) {
+		} finally {
+			/* Failures are tried again next time */
+			if (info == null) {
+				builtinScannerInfo.remove(key, probe);
+			}
+			probe.complete(info);
+		}
+
+		return info;
+	}
+
+	/**
+	 * Get the language to be given to the compiler for a file extension.
+	 *
+	 * @return The language for the -x option, or null if not known.
+	 */
+	private static String getProbeLanguage(String extension) {
+		switch (extension) {
+		case "c": //$NON-NLS-1$
+			return "c"; //$NON-NLS-1$
+		case "cpp": //$NON-NLS-1$
+		case "cxx": //$NON-NLS-1$
+		case "cc": //$NON-NLS-1$
+		case "cp": //$NON-NLS-1$
+		case "c++": //$NON-NLS-1$
+		case "C": //$NON-NLS-1$
+		case "CPP": //$NON-NLS-1$
+			return "c++"; //$NON-NLS-1$
+		case "S": //$NON-NLS-1$
+		case "sx": //$NON-NLS-1$
+			return "assembler-with-cpp"; //$NON-NLS-1$
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Get an empty source file with the given extension.
+	 *
+	 * The files are kept in the state location of the plugin and reused by
+	 * every probe, so they are never created in the build directory.
+	 */
+	private static synchronized Path getEmptySourceFile(String extension)
+			throws IOException {
+		Path dir = ZephyrPlugin.getDefault().getStateLocation()
+				.append("probe").toFile().toPath(); //$NON-NLS-1$
+		Files.createDirectories(dir);
+
+		Path file = dir.resolve("empty." + extension); //$NON-NLS-1$
+		if (!Files.isRegularFile(file) || (Files.size(file) != 0)) {
+			Files.write(file, new byte[0]);
+		}
+
+		return file;
+	}
+
+	/**
+	 * Run the compiler probe on an empty source file.
+	 *
+	 * The empty source is read from stdin with its language given by -x, so
+	 * no temporary file is needed. If that does not work, an empty file
+	 * with the same extension is used instead.
+	 *
+	 * @param commandLine The probe command without any source file.
+	 * @param extension File extension of the source file.
+	 */
+	private IExtendedScannerInfo probeEmptySource(
+			IBuildConfiguration buildConfig, List<String> commandLine,
+			Path buildDirectory, String extension,
 			Set<String> moreIncludePaths, Set<String> moreMacroFiles,
 			Set<String> moreIncludeFiles) throws IOException {
+		String language = getProbeLanguage(extension);
+		if (language != null) {
+			List<String> stdinCommand = new ArrayList<>(commandLine);
+			stdinCommand.add("-x"); //$NON-NLS-1$
+			stdinCommand.add(language);
+			stdinCommand.add("-"); //$NON-NLS-1$
+
+			IExtendedScannerInfo info = getScannerInfo(buildConfig,
+					stdinCommand, buildDirectory, moreIncludePaths,
+					moreMacroFiles, moreIncludeFiles, true);
+			if ((info != null) || Thread.currentThread().isInterrupted()) {
+				return info;
+			}
+		}
+
+		List<String> fileCommand = new ArrayList<>(commandLine);
+		fileCommand.add(getEmptySourceFile(extension).toString());
+
+		return getScannerInfo(buildConfig, fileCommand, buildDirectory,
+				moreIncludePaths, moreMacroFiles, moreIncludeFiles, false);
+	}
+
+	/**
+	 * Run the compiler probe and parse its output.
+	 *
+	 * @param requireSuccess Return null if the compiler fails.
+	 * @return The scanner info, or null if the probe has been interrupted.
+	 */
+	private IExtendedScannerInfo getScannerInfo(IBuildConfiguration buildConfig,
+			List<String> commandLine, Path buildDirectory,
+			Set<String> moreIncludePaths, Set<String> moreMacroFiles,
+			Set<String> moreIncludeFiles, boolean requireSuccess)
+			throws IOException {
+		Span span = ZephyrEvents.getRecorder().beginCompilerProbe(commandLine);
+		try {
+			return runProbe(buildConfig, commandLine, buildDirectory,
+					moreIncludePaths, moreMacroFiles, moreIncludeFiles,
+					requireSuccess);
+		} finally {
+			span.end();
+		}
+	}
+
+	private IExtendedScannerInfo runProbe(IBuildConfiguration buildConfig,
+			List<String> commandLine, Path buildDirectory,
+			Set<String> moreIncludePaths, Set<String> moreMacroFiles,
+			Set<String> moreIncludeFiles, boolean requireSuccess)
+			throws IOException {
 		Files.createDirectories(buildDirectory);
 
 		/* Run the command */
@@ -497,10 +941,13 @@ public class ZephyrGCCToolChain extends PlatformObject implements IToolChain {
 				.setEnvironment(buildEnv, buildConfig, true);
 		Process process = processBuilder.start();
 
+		/* Nothing to give, an empty stdin is an empty source */
+		process.getOutputStream().close();
+
 		/* Scan for the scanner info */
 		Map<String, String> symbols = new HashMap<>();
-		Set<String> includePath =
-				(moreIncludePaths == null) ? new HashSet<>() : moreIncludePaths;
+		Set<String> includePath = (moreIncludePaths == null) ? new HashSet<>()
+				: new HashSet<>(moreIncludePaths);
 		Pattern definePattern = Pattern.compile("#define (.*)\\s(.*)"); //$NON-NLS-1$
 		boolean inIncludePaths = false;
 		try (BufferedReader reader = new BufferedReader(
@@ -526,11 +973,19 @@ public class ZephyrGCCToolChain extends PlatformObject implements IToolChain {
 			}
 		}
 
+		int exitValue;
 		try {
-			process.waitFor();
+			exitValue = process.waitFor();
 		} catch (InterruptedException e) {
+			/* Do not leave the compiler running, and keep the interrupt */
+			process.destroy();
+			Thread.currentThread().interrupt();
+			return null;
+		}
+
+		if (requireSuccess && (exitValue != 0)) {
+			return null;
 		}
-		Files.delete(tmpFile);
 
 		Set<String> macroFiles =
 				(moreMacroFiles == null) ? new HashSet<>() : moreMacroFiles;
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Memoized lookup of commands in the PATH.
+ *
+ * Looking for a command stats every PATH entry until the command is found,
+ * and the same few commands are looked up many times during each build.
+ * Resolved commands are cached by the PATH value and the command name, so
+ * a different build environment looks them up again. The cache is also
+ * invalidated when the workspace preferences of the toolchains change.
+ *
+ * Commands which are not found are not cached, so they are found once they
+ * have been installed.
+ */
+public final class CommandResolver {
+
+	private static final String PATH = "PATH"; //$NON-NLS-1$
+
+	private static final Map<String, Path> cache = new ConcurrentHashMap<>();
+
+	private static final AtomicLong hits = new AtomicLong();
+
+	private static final AtomicLong misses = new AtomicLong();
+
+	private CommandResolver() {
+	}
+
+	/**
+	 * Find a command in the PATH.
+	 *
+	 * @param path Value of the PATH environment variable, null for the one
+	 *            of the workbench.
+	 * @param command Name of the command.
+	 * @return Path to the command, or null if not found.
+	 */
+	public static Path resolve(String path, String command) {
+		String searchPath = (path != null) ? path : getPath(System.getenv());
+		return resolve(searchPath, command, () -> search(searchPath, command));
+	}
+
+	/**
+	 * Find a command using a custom lookup, caching the result.
+	 *
+	 * @param path Value of the PATH environment variable used by the lookup.
+	 * @param command Name of the command.
+	 * @param lookup Lookup to be done if the command is not cached.
+	 * @return Path to the command, or null if not found.
+	 */
+	public static Path resolve(String path, String command,
+			Supplier<Path> lookup) {
+		String key = path + '\0' + command;
+
+		Path cmdPath = cache.get(key);
+		if (cmdPath != null) {
+			hits.incrementAndGet();
+			return cmdPath;
+		}
+
+		misses.incrementAndGet();
+		cmdPath = lookup.get();
+		if (cmdPath != null) {
+			cache.put(key, cmdPath);
+		}
+
+		return cmdPath;
+	}
+
+	/**
+	 * Get the PATH of an environment.
+	 *
+	 * The name of the variable is not case sensitive, as on Windows it is
+	 * usually "Path".
+	 *
+	 * @param env The environment variables.
+	 * @return Value of PATH, or null if not set.
+	 */
+	public static String getPath(Map<String, String> env) {
+		String path = env.get(PATH);
+		if (path != null) {
+			return path;
+		}
+
+		for (Map.Entry<String, String> var : env.entrySet()) {
+			if (PATH.equalsIgnoreCase(var.getKey())) {
+				return var.getValue();
+			}
+		}
+		return null;
+	}
+
+	private static Path search(String path, String command) {
+		if (path == null) {
+			return null;
+		}
+
+		for (String entry : path.split(File.pathSeparator)) {
+			try {
+				Path cmdPath = Paths.get(entry).resolve(command);
+				if (Files.isExecutable(cmdPath)) {
+					return cmdPath;
+				}
+			} catch (InvalidPathException e) {
+				continue;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Forget all resolved commands.
+	 */
+	public static void invalidate() {
+		cache.clear();
+	}
+
+	/**
+	 * @return Number of lookups answered from the cache.
+	 */
+	public static long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return Number of lookups which searched for the command.
+	 */
+	public static long getMissCount() {
+		return misses.get();
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal;
+
+import java.util.List;
+
+/**
+ * Recorder of profiling events for the work done by this plugin.
+ *
+ * Each begin method starts an event, which is recorded once ended. The
+ * events are only recorded when a profiler is recording them.
+ *
+ * @see ZephyrEvents#getRecorder()
+ */
+public interface IZephyrEventRecorder {
+
+	/**
+	 * An event which has been started.
+	 */
+	interface Span {
+
+		/**
+		 * End the event, and record it.
+		 */
+		void end();
+
+	}
+
+	/**
+	 * An event which transfers data.
+	 */
+	interface DataSpan extends Span {
+
+		/**
+		 * @param bytes Number of bytes transferred.
+		 */
+		void setBytes(long bytes);
+
+	}
+
+	/**
+	 * @param project Name of the project.
+	 * @param generator CMake generator.
+	 * @return The event.
+	 */
+	Span beginCMakeConfigure(String project, String generator);
+
+	/**
+	 * @param project Name of the project.
+	 * @param program Build program, i.e. ninja or make.
+	 * @return The event.
+	 */
+	Span beginBuild(String project, String program);
+
+	/**
+	 * @param commandLine Command line of the probe, starting with the
+	 *            compiler.
+	 * @return The event.
+	 */
+	Span beginCompilerProbe(List<String> commandLine);
+
+	/**
+	 * @param project Name of the project.
+	 * @param write True for writing the cache, false for reading it.
+	 * @return The event.
+	 */
+	DataSpan beginScannerInfoCache(String project, boolean write);
+
+	/**
+	 * @param project Name of the project.
+	 * @param action Launch action, e.g. flash or debugserver.
+	 * @return The event.
+	 */
+	Span beginLaunch(String project, String action);
+
+	/**
+	 * @param zephyrBase Path to ZEPHYR_BASE.
+	 * @return The event.
+	 */
+	Span beginBoardScan(String zephyrBase);
+
+}
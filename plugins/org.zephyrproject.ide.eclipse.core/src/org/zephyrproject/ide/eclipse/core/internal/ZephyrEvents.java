@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal;
+
+import java.util.List;
+
+import org.zephyrproject.ide.eclipse.core.ZephyrPlugin;
+
+/**
+ * Access to the profiling event recorder.
+ *
+ * On Java 11 or newer, events are recorded with JDK Flight Recorder by the
+ * Java 11 fragment. Otherwise, or if that fails, events are discarded.
+ */
+public final class ZephyrEvents {
+
+	private static volatile IZephyrEventRecorder recorder;
+
+	private ZephyrEvents() {
+	}
+
+	/**
+	 * Recorder which discards all events.
+	 */
+	private static final class NullRecorder implements IZephyrEventRecorder {
+
+		private static final DataSpan NULL_SPAN = new DataSpan() {
+			@Override
+			public void end() {
+			}
+
+			@Override
+			public void setBytes(long bytes) {
+			}
+		};
+
+		@Override
+		public Span beginCMakeConfigure(String project, String generator) {
+			return NULL_SPAN;
+		}
+
+		@Override
+		public Span beginBuild(String project, String program) {
+			return NULL_SPAN;
+		}
+
+		@Override
+		public Span beginCompilerProbe(List<String> commandLine) {
+			return NULL_SPAN;
+		}
+
+		@Override
+		public DataSpan beginScannerInfoCache(String project, boolean write) {
+			return NULL_SPAN;
+		}
+
+		@Override
+		public Span beginLaunch(String project, String action) {
+			return NULL_SPAN;
+		}
+
+		@Override
+		public Span beginBoardScan(String zephyrBase) {
+			return NULL_SPAN;
+		}
+
+	}
+
+	/**
+	 * @return The event recorder.
+	 */
+	public static IZephyrEventRecorder getRecorder() {
+		IZephyrEventRecorder r = recorder;
+		if (r == null) {
+			r = createRecorder();
+			recorder = r;
+		}
+		return r;
+	}
+
+	private static IZephyrEventRecorder createRecorder() {
+		Double jvmSpecVer = Double.parseDouble(
+				System.getProperty("java.specification.version")); //$NON-NLS-1$
+		if (jvmSpecVer < 11) {
+			return new NullRecorder();
+		}
+
+		String className =
+				String.format("%s.internal.events.java11.JfrEventRecorder", //$NON-NLS-1$
+						ZephyrPlugin.PLUGIN_ID);
+		try {
+			ClassLoader loader = ZephyrEvents.class.getClassLoader();
+			return (IZephyrEventRecorder) loader.loadClass(className)
+					.getConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			/* Fragment not installed, or Flight Recorder not available */
+			return new NullRecorder();
+		}
+	}
+
+}
@@ -40,6 +40,7 @@ import org.zephyrproject.ide.eclipse.core.build.toolchain.ZephyrToolChainConstan
 import org.zephyrproject.ide.eclipse.core.build.toolchain.ZephyrToolChainConstants.CustomToolChain;
 import org.zephyrproject.ide.eclipse.core.build.toolchain.ZephyrToolChainConstants.GnuArmEmbToolChain;
 import org.zephyrproject.ide.eclipse.core.build.toolchain.ZephyrToolChainConstants.ZephyrSdkToolChain;
+import org.zephyrproject.ide.eclipse.core.internal.IZephyrEventRecorder.Span;
 import org.zephyrproject.ide.eclipse.core.internal.build.CMakeCache;
 import org.zephyrproject.ide.eclipse.core.launch.IZephyrLaunchHelper;
 import org.zephyrproject.ide.eclipse.core.preferences.ZephyrProjectPreferences;
@@ -164,54 +165,95 @@ public final class ZephyrHelpers {
 		public static Process doMakefile(IProject project,
 				ZephyrApplicationBuildConfiguration appBuildCfg, ILaunch launch,
 				String makeProgram, String mode) throws CoreException {
+			Span span = ZephyrEvents.getRecorder()
+					.beginLaunch(project.getName(), mode);
+			Process process = null;
 			try {
 				IZephyrLaunchHelper helper = getLaunchHelper();
 				if (helper != null) {
-					return helper.doMakefile(project, appBuildCfg, launch,
+					process = helper.doMakefile(project, appBuildCfg, launch,
 							makeProgram, mode);
+					return process;
 				}
 
 				return null;
 			} catch (IOException e) {
 				throw new CoreException(ZephyrHelpers
 						.errorStatus("Error running Makefile command.", e)); //$NON-NLS-1$
+			} finally {
+				endOnExit(span, process);
 			}
 		}
 
 		public static Process doNinja(IProject project,
 				ZephyrApplicationBuildConfiguration appBuildCfg, ILaunch launch,
 				String makeProgram, String mode) throws CoreException {
+			Span span = ZephyrEvents.getRecorder()
+					.beginLaunch(project.getName(), mode);
+			Process process = null;
 			try {
 				IZephyrLaunchHelper helper = getLaunchHelper();
 				if (helper != null) {
-					return helper.doNinja(project, appBuildCfg, launch,
+					process = helper.doNinja(project, appBuildCfg, launch,
 							makeProgram, mode);
+					return process;
 				}
 
 				return null;
 			} catch (IOException e) {
 				throw new CoreException(ZephyrHelpers
 						.errorStatus("Error running Ninja command.", e)); //$NON-NLS-1$
+			} finally {
+				endOnExit(span, process);
 			}
 		}
 
 		public static Process runWest(IProject project,
 				ZephyrApplicationBuildConfiguration appBuildCfg, ILaunch launch,
 				String action, String args) throws CoreException {
+			Span span = ZephyrEvents.getRecorder()
+					.beginLaunch(project.getName(), action);
+			Process process = null;
 			try {
 				IZephyrLaunchHelper helper = getLaunchHelper();
 				if (helper != null) {
-					return helper.runWest(project, appBuildCfg, launch, action,
-							args);
+					process = helper.runWest(project, appBuildCfg, launch,
+							action, args);
+					return process;
 				}
 
 				return null;
 			} catch (IOException e) {
 				throw new CoreException(
 						ZephyrHelpers.errorStatus("Error running West.", e)); //$NON-NLS-1$
+			} finally {
+				endOnExit(span, process);
 			}
 		}
 
+		/**
+		 * End the event of a launch once its process exits, or right away
+		 * if no process has been started.
+		 */
+		private static void endOnExit(Span span, Process process) {
+			if (process == null) {
+				span.end();
+				return;
+			}
+
+			Thread waiter = new Thread(() -> {
+				try {
+					process.waitFor();
+				} catch (InterruptedException e) {
+					/* Record what has been seen so far */
+				} finally {
+					span.end();
+				}
+			}, "Zephyr launch event"); //$NON-NLS-1$
+			waiter.setDaemon(true);
+			waiter.start();
+		}
+
 		private static IZephyrLaunchHelper getLaunchHelper()
 				throws CoreException {
 			IZephyrLaunchHelper helper = null;
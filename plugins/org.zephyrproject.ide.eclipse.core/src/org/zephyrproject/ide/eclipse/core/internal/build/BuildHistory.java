@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.zephyrproject.ide.eclipse.core.ZephyrPlugin;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Rolling history of the builds of a project.
+ *
+ * The most recent records are kept in a JSON file in the working location
+ * of the project, oldest first, so build times can be compared across
+ * Zephyr or SDK upgrades.
+ */
+public class BuildHistory {
+
+	public static final String HISTORY_FILE = "build-history.json"; //$NON-NLS-1$
+
+	/**
+	 * Number of records kept in the history.
+	 */
+	public static final int MAX_RECORDS = 50;
+
+	private final File historyFile;
+
+	/**
+	 * @param project The project.
+	 */
+	public BuildHistory(IProject project) {
+		this.historyFile = project.getWorkingLocation(ZephyrPlugin.PLUGIN_ID)
+				.append(HISTORY_FILE).toFile();
+	}
+
+	/**
+	 * Read the history.
+	 *
+	 * @return The records, oldest first.
+	 */
+	public List<BuildRecord> read() {
+		synchronized (BuildHistory.class) {
+			return readRecords();
+		}
+	}
+
+	/**
+	 * Add a record to the history, dropping the oldest ones beyond
+	 * {@link #MAX_RECORDS}.
+	 *
+	 * @param record The record.
+	 */
+	public void append(BuildRecord record) {
+		synchronized (BuildHistory.class) {
+			List<BuildRecord> records = readRecords();
+			records.add(record);
+			if (records.size() > MAX_RECORDS) {
+				records = new ArrayList<>(records
+						.subList(records.size() - MAX_RECORDS, records.size()));
+			}
+
+			/* Replace the file at once, so readers never see a partial one */
+			File tmpFile = new File(historyFile.getPath() + ".tmp"); //$NON-NLS-1$
+			try {
+				try (FileWriter writer = new FileWriter(tmpFile)) {
+					Gson gson = new Gson();
+					gson.toJson(records, writer);
+				}
+				CompilerProbeCache.moveAtomically(tmpFile.toPath(),
+						historyFile.toPath());
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private List<BuildRecord> readRecords() {
+		List<BuildRecord> records = new ArrayList<>();
+		if (!historyFile.exists()) {
+			return records;
+		}
+
+		try (FileReader reader = new FileReader(historyFile)) {
+			Gson gson = new Gson();
+			Type listType = new TypeToken<List<BuildRecord>>() {
+			}.getType();
+			List<BuildRecord> list = gson.fromJson(reader, listType);
+			if (list != null) {
+				records.addAll(list);
+			}
+		} catch (Exception e) {
+			/* Start over if the history cannot be read */
+			e.printStackTrace();
+		}
+
+		return records;
+	}
+
+}
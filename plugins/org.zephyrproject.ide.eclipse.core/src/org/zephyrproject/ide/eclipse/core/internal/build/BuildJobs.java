@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.ui.preferences.ScopedPreferenceStore;
+import org.zephyrproject.ide.eclipse.core.build.CMakeConstants;
+import org.zephyrproject.ide.eclipse.core.preferences.ZephyrProjectPreferences;
+
+/**
+ * Command line arguments for parallel builds with make or ninja.
+ *
+ * Make runs one job at a time unless told otherwise, so it is given the
+ * number of jobs, and asked to group the output of each target so the
+ * error parsers and the progress monitor do not see interleaved lines.
+ * Make older than 4.0 cannot group the output, so it is only run in
+ * parallel if a number of jobs has been configured. Ninja is parallel by
+ * default, so it is only given the number of jobs if one has been
+ * configured.
+ */
+public final class BuildJobs {
+
+	/* Whether each make program supports --output-sync, by path */
+	private static final Map<String, Boolean> outputSync =
+			new ConcurrentHashMap<>();
+
+	/* Seconds to wait for make to print its version */
+	private static final long PROBE_TIMEOUT = 10;
+
+	private static final Pattern MAKE_VERSION_PATTERN =
+			Pattern.compile("GNU Make (\\d+)\\..*"); //$NON-NLS-1$
+
+	private BuildJobs() {
+	}
+
+	/**
+	 * Get the arguments for running the build tool in parallel.
+	 *
+	 * @param pStore Project ScopedPreferenceStore
+	 * @param generator CMake generator.
+	 * @param program Path to the make or ninja program, as found in the
+	 *            build environment.
+	 * @param syncOutput Group the output of make by target. This delays the
+	 *            output of each target until it is done, so it is not for
+	 *            targets which keep running, like debugserver.
+	 * @return The arguments.
+	 */
+	public static List<String> getArguments(ScopedPreferenceStore pStore,
+			String generator, String program, boolean syncOutput) {
+		List<String> args = new ArrayList<>();
+		int jobs = ZephyrProjectPreferences.getBuildJobs(pStore);
+		double loadLimit = ZephyrProjectPreferences.getBuildLoadLimit(pStore);
+
+		if (generator.equals(CMakeConstants.CMAKE_GENERATOR_MAKEFILE)) {
+			boolean sync = syncOutput && supportsOutputSync(program);
+
+			/* Without grouping, only interleave the output if asked to */
+			if ((jobs == 0) && sync) {
+				jobs = Runtime.getRuntime().availableProcessors();
+			}
+			if (jobs > 0) {
+				args.add(String.format("-j%d", jobs)); //$NON-NLS-1$
+			}
+			if (loadLimit > 0) {
+				args.add(String.format("-l%s", loadLimit)); //$NON-NLS-1$
+			}
+			if (sync) {
+				args.add("--output-sync=target"); //$NON-NLS-1$
+			}
+		} else if (generator.equals(CMakeConstants.CMAKE_GENERATOR_NINJA)) {
+			if (jobs > 0) {
+				args.add(String.format("-j%d", jobs)); //$NON-NLS-1$
+			}
+			if (loadLimit > 0) {
+				args.add(String.format("-l%s", loadLimit)); //$NON-NLS-1$
+			}
+		}
+
+		return args;
+	}
+
+	/**
+	 * Check if make supports --output-sync, which is new in GNU Make 4.0.
+	 *
+	 * Only a program found in the build environment, given by its absolute
+	 * path, is checked, so this never checks another make than the one
+	 * running the build.
+	 *
+	 * @param program Path to the make program.
+	 * @return True if supported.
+	 */
+	private static boolean supportsOutputSync(String program) {
+		try {
+			if (!Paths.get(program).isAbsolute()) {
+				return false;
+			}
+		} catch (InvalidPathException e) {
+			return false;
+		}
+
+		return outputSync.computeIfAbsent(program, BuildJobs::probeOutputSync);
+	}
+
+	private static Boolean probeOutputSync(String program) {
+		File output = null;
+		try {
+			/* Wait on the process, not its output, so a hang times out */
+			output = File.createTempFile("zephyr-make-version", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+			Process process = new ProcessBuilder(program, "--version") //$NON-NLS-1$
+					.redirectErrorStream(true).redirectOutput(output)
+					.start();
+			process.getOutputStream().close();
+
+			if (!process.waitFor(PROBE_TIMEOUT, TimeUnit.SECONDS)) {
+				process.destroyForcibly();
+				return false;
+			}
+
+			String line;
+			try (BufferedReader reader =
+					new BufferedReader(new FileReader(output))) {
+				line = reader.readLine();
+			}
+
+			if (line == null) {
+				return false;
+			}
+
+			Matcher matcher = MAKE_VERSION_PATTERN.matcher(line.trim());
+			return matcher.matches()
+					&& (Integer.parseInt(matcher.group(1)) >= 4);
+		} catch (IOException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			if (output != null) {
+				output.delete();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Refresh the outputs of a build in the workspace.
+ *
+ * Only the files written by the build are refreshed, instead of walking
+ * the whole build folder. Files in folders which are not in the workspace
+ * yet are refreshed by their topmost new folder.
+ */
+public class BuildOutputRefresher {
+
+	/* Modification times may be truncated to seconds by the file system */
+	public static final long MTIME_GRANULARITY = 1000;
+
+	/* Outputs declared in the makefiles, by build directory */
+	private static final Map<Path, MakeOutputs> makeOutputs =
+			new ConcurrentHashMap<>();
+
+	private final IContainer buildFolder;
+
+	private final Path buildDirectory;
+
+	/**
+	 * @param buildFolder The build folder in the workspace.
+	 * @param buildDirectory Location of the build folder.
+	 */
+	public BuildOutputRefresher(IContainer buildFolder, Path buildDirectory) {
+		this.buildFolder = buildFolder;
+		this.buildDirectory = buildDirectory.normalize();
+	}
+
+	/**
+	 * Get the outputs written by ninja since a mark.
+	 *
+	 * @param log The ninja log of the build directory.
+	 * @param mark Mark taken before the build.
+	 * @return The outputs, or null if they cannot be told from the log.
+	 */
+	public static List<String> getNinjaOutputs(NinjaLog log,
+			NinjaLog.Mark mark) {
+		try {
+			List<NinjaLog.Entry> entries = log.readSince(mark);
+			if (entries == null) {
+				return null;
+			}
+
+			List<String> outputs = new ArrayList<>(entries.size());
+			for (NinjaLog.Entry entry : entries) {
+				outputs.add(entry.getOutput());
+			}
+			return outputs;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Outputs declared in the makefiles of a build directory, valid as long
+	 * as CMake does not generate the makefiles again.
+	 */
+	private static final class MakeOutputs {
+
+		private final long stamp;
+
+		private final List<String> outputs;
+
+		private MakeOutputs(long stamp, List<String> outputs) {
+			this.stamp = stamp;
+			this.outputs = outputs;
+		}
+
+	}
+
+	/**
+	 * Get the outputs declared in the makefiles generated by CMake, which
+	 * have been modified since a point in time.
+	 *
+	 * The outputs are the targets of the rules in the build.make file of
+	 * each CMake target listed in CMakeFiles/Makefile.cmake. They are only
+	 * read again when CMake generates the makefiles again, so only the
+	 * outputs are checked, instead of walking the whole build directory.
+	 *
+	 * @param since Time in milliseconds since the epoch.
+	 * @return The files, or null if the makefiles cannot be read.
+	 */
+	public List<String> getMakeOutputs(long since) {
+		File makefileCMake = buildDirectory.resolve("CMakeFiles") //$NON-NLS-1$
+				.resolve("Makefile.cmake").toFile(); //$NON-NLS-1$
+		long stamp = makefileCMake.lastModified();
+		if (stamp == 0) {
+			return null;
+		}
+
+		MakeOutputs known = makeOutputs.get(buildDirectory);
+		if ((known == null) || (known.stamp != stamp)) {
+			try {
+				known = new MakeOutputs(stamp,
+						readMakeOutputs(makefileCMake.toPath()));
+			} catch (IOException | InvalidPathException e) {
+				return null;
+			}
+			makeOutputs.put(buildDirectory, known);
+		}
+
+		long threshold = since - (since % MTIME_GRANULARITY);
+		List<String> files = new ArrayList<>();
+		for (String output : known.outputs) {
+			if (buildDirectory.resolve(output).toFile()
+					.lastModified() >= threshold) {
+				files.add(output);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Read the targets of the rules in the build.make files of the CMake
+	 * targets, except the phony ones.
+	 *
+	 * @param makefileCMake Path to CMakeFiles/Makefile.cmake.
+	 * @return The outputs, relative to the build directory or absolute.
+	 */
+	private List<String> readMakeOutputs(Path makefileCMake)
+			throws IOException {
+		/* The DependInfo.cmake of each target is next to its build.make */
+		List<Path> buildMakes = new ArrayList<>();
+		boolean inDependInfo = false;
+		for (String line : Files.readAllLines(makefileCMake)) {
+			line = line.trim();
+			if (line.startsWith("set(CMAKE_DEPEND_INFO_FILES")) { //$NON-NLS-1$
+				inDependInfo = true;
+			} else if (inDependInfo && line.startsWith(")")) { //$NON-NLS-1$
+				break;
+			} else if (inDependInfo && (line.length() > 1)
+					&& line.startsWith("\"")) { //$NON-NLS-1$
+				Path dependInfo = buildDirectory
+						.resolve(line.substring(1, line.length() - 1));
+				buildMakes.add(
+						dependInfo.resolveSibling("build.make")); //$NON-NLS-1$
+			}
+		}
+
+		Set<String> outputs = new LinkedHashSet<>();
+		Set<String> phony = new HashSet<>();
+		for (Path buildMake : buildMakes) {
+			if (!Files.isRegularFile(buildMake)) {
+				continue;
+			}
+
+			for (String line : Files.readAllLines(buildMake)) {
+				if (line.isEmpty() || (line.charAt(0) == '#')
+						|| (line.charAt(0) == '\t')) {
+					continue;
+				}
+
+				/* Not the colon of a drive letter, which has no space after */
+				int colon = line.indexOf(": "); //$NON-NLS-1$
+				if ((colon < 0) && line.endsWith(":")) { //$NON-NLS-1$
+					colon = line.length() - 1;
+				}
+				if (colon <= 0) {
+					continue;
+				}
+
+				String targets = line.substring(0, colon).trim();
+				if (targets.equals(".PHONY")) { //$NON-NLS-1$
+					phony.addAll(splitMakeWords(line.substring(colon + 1)));
+				} else if (!targets.contains("=") //$NON-NLS-1$
+						&& !targets.startsWith(".")) { //$NON-NLS-1$
+					outputs.addAll(splitMakeWords(targets));
+				}
+			}
+		}
+
+		outputs.removeAll(phony);
+		return new ArrayList<>(outputs);
+	}
+
+	/**
+	 * Split a list of make words, undoing the escapes of CMake.
+	 */
+	private static List<String> splitMakeWords(String words) {
+		List<String> list = new ArrayList<>();
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i < words.length(); i++) {
+			char c = words.charAt(i);
+			if ((c == '\\') && (i + 1 < words.length())
+					&& (words.charAt(i + 1) == ' ')) {
+				word.append(' ');
+				i++;
+			} else if ((c == '$') && (i + 1 < words.length())
+					&& (words.charAt(i + 1) == '$')) {
+				word.append('$');
+				i++;
+			} else if (Character.isWhitespace(c)) {
+				if (word.length() > 0) {
+					list.add(word.toString());
+					word.setLength(0);
+				}
+			} else {
+				word.append(c);
+			}
+		}
+		if (word.length() > 0) {
+			list.add(word.toString());
+		}
+		return list;
+	}
+
+	/**
+	 * Get the files in the build directory modified since a point in time.
+	 *
+	 * @param since Time in milliseconds since the epoch.
+	 * @return The files, or null if the build directory cannot be read.
+	 */
+	public List<String> getModifiedFiles(long since) {
+		long threshold = since - (since % MTIME_GRANULARITY);
+		List<String> files = new ArrayList<>();
+
+		try {
+			Files.walkFileTree(buildDirectory, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file,
+						BasicFileAttributes attrs) {
+					if (attrs.lastModifiedTime().toMillis() >= threshold) {
+						files.add(buildDirectory.relativize(file).toString());
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file,
+						IOException exc) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			return null;
+		}
+
+		return files;
+	}
+
+	/**
+	 * Refresh build outputs.
+	 *
+	 * @param outputs Paths of the outputs, relative to the build directory
+	 *            or absolute.
+	 * @param monitor Progress monitor.
+	 * @return Number of files and new folders refreshed.
+	 * @throws CoreException if refreshing fails.
+	 */
+	public int refresh(Collection<String> outputs, IProgressMonitor monitor)
+			throws CoreException {
+		Set<IResource> resources = new LinkedHashSet<>();
+
+		for (String output : outputs) {
+			Path location;
+			try {
+				location = buildDirectory.resolve(output).normalize();
+			} catch (InvalidPathException e) {
+				continue;
+			}
+			if (!location.startsWith(buildDirectory)
+					|| location.equals(buildDirectory)) {
+				continue;
+			}
+
+			IPath relative = org.eclipse.core.runtime.Path.fromOSString(
+					buildDirectory.relativize(location).toString());
+			IResource resource = buildFolder.getFile(relative);
+
+			/* New folders are refreshed as a whole */
+			IContainer parent = resource.getParent();
+			while (!parent.equals(buildFolder) && !parent.exists()) {
+				resource = parent;
+				parent = parent.getParent();
+			}
+
+			resources.add(resource);
+		}
+
+		SubMonitor subMonitor = SubMonitor.convert(monitor, resources.size());
+		for (IResource resource : resources) {
+			int depth = (resource.getType() == IResource.FILE)
+					? IResource.DEPTH_ZERO
+					: IResource.DEPTH_INFINITE;
+			resource.refreshLocal(depth, subMonitor.split(1));
+		}
+
+		return resources.size();
+	}
+
+	/**
+	 * Refresh the whole build folder.
+	 *
+	 * @param monitor Progress monitor.
+	 * @throws CoreException if refreshing fails.
+	 */
+	public void refreshAll(IProgressMonitor monitor) throws CoreException {
+		buildFolder.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+	}
+
+}
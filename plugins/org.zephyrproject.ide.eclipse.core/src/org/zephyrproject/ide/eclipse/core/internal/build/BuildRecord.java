@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timings and counters of one build or clean, as kept in the build history.
+ *
+ * Phases are timed with {@link System#nanoTime()}, so they are not affected
+ * by changes of the system clock.
+ */
+public class BuildRecord {
+
+	public static final String KIND_BUILD = "build"; //$NON-NLS-1$
+
+	public static final String KIND_CLEAN = "clean"; //$NON-NLS-1$
+
+	public static final String RESULT_OK = "ok"; //$NON-NLS-1$
+
+	public static final String RESULT_FAILED = "failed"; //$NON-NLS-1$
+
+	public static final String RESULT_CANCELLED = "cancelled"; //$NON-NLS-1$
+
+	/* Wall clock time when the build started, in ms since the epoch */
+	private long time;
+
+	private String kind;
+
+	private String result = RESULT_OK;
+
+	/* Duration of each phase in ms, in order of execution */
+	private Map<String, Long> phases = new LinkedHashMap<>();
+
+	private long probes;
+
+	private long probeCacheHits;
+
+	/* -1 if the whole build folder has been refreshed */
+	private int filesRefreshed;
+
+	private int filesIndexed;
+
+	/* For Gson, so the field initializers are run */
+	private BuildRecord() {
+	}
+
+	/**
+	 * @param kind {@link #KIND_BUILD} or {@link #KIND_CLEAN}.
+	 */
+	public BuildRecord(String kind) {
+		this.time = System.currentTimeMillis();
+		this.kind = kind;
+	}
+
+	/**
+	 * Record the duration of a phase which has just ended.
+	 *
+	 * @param phase Name of the phase.
+	 * @param start Value of {@link System#nanoTime()} when the phase started.
+	 */
+	public synchronized void addPhase(String phase, long start) {
+		phases.put(phase, (System.nanoTime() - start) / 1000000);
+	}
+
+	/**
+	 * @return Duration of each phase in ms, in order of execution.
+	 */
+	public synchronized Map<String, Long> getPhases() {
+		return new LinkedHashMap<>(phases);
+	}
+
+	/**
+	 * @return Sum of the durations of all phases in ms.
+	 */
+	public synchronized long getTotalTime() {
+		long total = 0;
+		for (long duration : phases.values()) {
+			total += duration;
+		}
+		return total;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public String getKind() {
+		return kind;
+	}
+
+	public String getResult() {
+		return result;
+	}
+
+	public void setResult(String result) {
+		this.result = result;
+	}
+
+	public long getProbes() {
+		return probes;
+	}
+
+	public long getProbeCacheHits() {
+		return probeCacheHits;
+	}
+
+	/**
+	 * @param probes Number of compiler probes run.
+	 * @param probeCacheHits Number of probes answered by the probe cache.
+	 */
+	public void setProbes(long probes, long probeCacheHits) {
+		this.probes = probes;
+		this.probeCacheHits = probeCacheHits;
+	}
+
+	public int getFilesRefreshed() {
+		return filesRefreshed;
+	}
+
+	/**
+	 * @param filesRefreshed Number of files refreshed, or -1 if the whole
+	 *            build folder has been refreshed.
+	 */
+	public void setFilesRefreshed(int filesRefreshed) {
+		this.filesRefreshed = filesRefreshed;
+	}
+
+	public int getFilesIndexed() {
+		return filesIndexed;
+	}
+
+	/**
+	 * @param filesIndexed Number of files sent to the indexer.
+	 */
+	public void setFilesIndexed(int filesIndexed) {
+		this.filesIndexed = filesIndexed;
+	}
+
+	/**
+	 * @return One line summary for the build console.
+	 */
+	public String getSummary() {
+		List<String> parts = new ArrayList<>();
+		for (Map.Entry<String, Long> phase : getPhases().entrySet()) {
+			parts.add(String.format("%s %s", phase.getKey(), //$NON-NLS-1$
+					formatDuration(phase.getValue())));
+		}
+
+		StringBuilder summary = new StringBuilder();
+		summary.append(String.format("----- %s %s in %s (%s)", //$NON-NLS-1$
+				kind.substring(0, 1).toUpperCase() + kind.substring(1),
+				result, formatDuration(getTotalTime()),
+				String.join(", ", parts))); //$NON-NLS-1$
+
+		if (KIND_BUILD.equals(kind)) {
+			summary.append(String.format("; %d probes, %d probe cache hits, " //$NON-NLS-1$
+					+ "%s refreshed, %d files indexed", //$NON-NLS-1$
+					probes, probeCacheHits,
+					(filesRefreshed < 0) ? "build folder" //$NON-NLS-1$
+							: (filesRefreshed + " files"), //$NON-NLS-1$
+					filesIndexed));
+		}
+
+		return summary.toString();
+	}
+
+	private static String formatDuration(long millis) {
+		return String.format("%d.%03d s", millis / 1000, millis % 1000); //$NON-NLS-1$
+	}
+
+}
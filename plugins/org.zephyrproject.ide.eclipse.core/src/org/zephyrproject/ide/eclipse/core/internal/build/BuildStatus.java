@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+/**
+ * Snapshot of the progress of the build of a project.
+ */
+public final class BuildStatus {
+
+	private final String project;
+
+	private final int finished;
+
+	private final int running;
+
+	private final int total;
+
+	private final long elapsed;
+
+	private final long remaining;
+
+	private final String step;
+
+	private final boolean done;
+
+	/**
+	 * @param project Name of the project.
+	 * @param finished Number of finished edges.
+	 * @param running Number of running edges.
+	 * @param total Total number of edges.
+	 * @param elapsed Elapsed time in ms.
+	 * @param remaining Estimated remaining time in ms, -1 if unknown.
+	 * @param step Description of the last started step.
+	 * @param done True if the build is over.
+	 */
+	public BuildStatus(String project, int finished, int running, int total,
+			long elapsed, long remaining, String step, boolean done) {
+		this.project = project;
+		this.finished = finished;
+		this.running = running;
+		this.total = total;
+		this.elapsed = elapsed;
+		this.remaining = remaining;
+		this.step = step;
+		this.done = done;
+	}
+
+	/**
+	 * @return The same status, for a build which is over.
+	 */
+	public BuildStatus toDone() {
+		return new BuildStatus(project, finished, 0, total, elapsed, 0, step,
+				true);
+	}
+
+	public String getProject() {
+		return project;
+	}
+
+	public int getFinished() {
+		return finished;
+	}
+
+	public int getRunning() {
+		return running;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	public long getRemaining() {
+		return remaining;
+	}
+
+	public String getStep() {
+		return step;
+	}
+
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * @return Percentage of the build done, by time if the remaining time
+	 *         is known, by edges otherwise.
+	 */
+	public int getPercentage() {
+		if (done) {
+			return 100;
+		}
+		if (remaining >= 0) {
+			long expected = elapsed + remaining;
+			return (expected > 0) ? (int) ((elapsed * 100) / expected) : 0;
+		}
+		return (total > 0) ? ((finished * 100) / total) : 0;
+	}
+
+	/**
+	 * Format a duration as minutes and seconds.
+	 *
+	 * @param millis Duration in ms, negative if unknown.
+	 * @return The formatted duration.
+	 */
+	public static String formatDuration(long millis) {
+		if (millis < 0) {
+			return "?"; //$NON-NLS-1$
+		}
+
+		long seconds = (millis + 999) / 1000;
+		return String.format("%d:%02d", seconds / 60, seconds % 60); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the latest build status of each project, and notifies listeners
+ * of changes, e.g. the build status view.
+ */
+public final class BuildStatusManager {
+
+	/**
+	 * Listener of build status changes.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called from the build thread when the status of a build changes.
+		 *
+		 * @param status The new status.
+		 */
+		void statusChanged(BuildStatus status);
+
+	}
+
+	private static final BuildStatusManager instance =
+			new BuildStatusManager();
+
+	private final Map<String, BuildStatus> statuses =
+			new ConcurrentHashMap<>();
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	private BuildStatusManager() {
+	}
+
+	/**
+	 * @return The shared instance.
+	 */
+	public static BuildStatusManager getDefault() {
+		return instance;
+	}
+
+	/**
+	 * @param status New status of the build of a project.
+	 */
+	public void update(BuildStatus status) {
+		statuses.put(status.getProject(), status);
+		for (Listener listener : listeners) {
+			listener.statusChanged(status);
+		}
+	}
+
+	/**
+	 * @return Latest status of each project built so far.
+	 */
+	public List<BuildStatus> getStatuses() {
+		return new ArrayList<>(statuses.values());
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.google.gson.Gson;
+
+/**
+ * Fingerprint of the CMake inputs which the build tool cannot track.
+ *
+ * Once CMake has run, ninja and make re-run it by themselves whenever one
+ * of the files it has read changes, including nested CMakeLists.txt and
+ * Kconfig fragments. They cannot tell when the board, generator or
+ * toolchain settings change, nor when a configuration file CMake looks for
+ * (e.g. an overlay for the board) is added to the application. CMake only
+ * needs to be invoked by the builder when this fingerprint changes.
+ */
+public class CMakeFingerprint {
+
+	public static final String FINGERPRINT_FILE =
+			"CMakeFiles/zephyr-eclipse-fingerprint.json"; //$NON-NLS-1$
+
+	private static final String BOARDS_DIR = "boards"; //$NON-NLS-1$
+
+	/* Board, generator and toolchain environment */
+	private Map<String, String> settings = new TreeMap<>();
+
+	/* Configuration files CMake may pick up, relative to the source */
+	private TreeSet<String> optionalInputs = new TreeSet<>();
+
+	/* For Gson, so the field initializers are run */
+	private CMakeFingerprint() {
+	}
+
+	/**
+	 * @param board Board to build for.
+	 * @param generator CMake generator.
+	 * @param environment Zephyr specific environment of the build.
+	 * @param sourceDirectory Directory of the application.
+	 */
+	public CMakeFingerprint(String board, String generator,
+			Map<String, String> environment, Path sourceDirectory) {
+		settings.putAll(environment);
+		settings.put("BOARD", board); //$NON-NLS-1$
+		settings.put("CMAKE_GENERATOR", generator); //$NON-NLS-1$
+
+		addOptionalInputs(sourceDirectory.toFile(), ""); //$NON-NLS-1$
+		addOptionalInputs(sourceDirectory.resolve(BOARDS_DIR).toFile(),
+				BOARDS_DIR + "/"); //$NON-NLS-1$
+	}
+
+	private void addOptionalInputs(File dir, String prefix) {
+		String[] names = dir.list();
+		if (names == null) {
+			return;
+		}
+
+		for (String name : names) {
+			if (name.endsWith(".conf") || name.endsWith(".overlay") //$NON-NLS-1$ //$NON-NLS-2$
+					|| name.startsWith("Kconfig")) { //$NON-NLS-1$
+				optionalInputs.add(prefix + name);
+			}
+		}
+	}
+
+	/**
+	 * Read the fingerprint of the last CMake run.
+	 *
+	 * @param buildDirectory The build directory.
+	 * @return The fingerprint, or null if there is none.
+	 */
+	public static CMakeFingerprint read(Path buildDirectory) {
+		File file = buildDirectory.resolve(FINGERPRINT_FILE).toFile();
+		if (!file.exists()) {
+			return null;
+		}
+
+		try (FileReader reader = new FileReader(file)) {
+			Gson gson = new Gson();
+			return gson.fromJson(reader, CMakeFingerprint.class);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Write this fingerprint as the one of the last CMake run.
+	 *
+	 * @param buildDirectory The build directory.
+	 */
+	public void write(Path buildDirectory) {
+		Path file = buildDirectory.resolve(FINGERPRINT_FILE);
+		Path tmpFile =
+				file.resolveSibling(file.getFileName() + ".tmp"); //$NON-NLS-1$
+		synchronized (CMakeFingerprint.class) {
+			/* Replace the file at once, so readers never see a partial one */
+			try {
+				try (FileWriter writer = new FileWriter(tmpFile.toFile())) {
+					Gson gson = new Gson();
+					gson.toJson(this, writer);
+				}
+				CompilerProbeCache.moveAtomically(tmpFile, file);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Forget the fingerprint of the last CMake run, so CMake runs again on
+	 * the next build.
+	 *
+	 * @param buildDirectory The build directory.
+	 */
+	public static void invalidate(Path buildDirectory) {
+		synchronized (CMakeFingerprint.class) {
+			try {
+				Files.deleteIfExists(buildDirectory.resolve(FINGERPRINT_FILE));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Describe what has changed since a previous fingerprint.
+	 *
+	 * @param previous Fingerprint of the last CMake run, may be null.
+	 * @return Descriptions of the changes, empty if there are none.
+	 */
+	public List<String> getChanges(CMakeFingerprint previous) {
+		List<String> changes = new ArrayList<>();
+		if ((previous == null) || (previous.settings == null)
+				|| (previous.optionalInputs == null)) {
+			changes.add("no previous configuration");
+			return changes;
+		}
+
+		TreeSet<String> keys = new TreeSet<>(settings.keySet());
+		keys.addAll(previous.settings.keySet());
+		for (String key : keys) {
+			if (!Objects.equals(settings.get(key),
+					previous.settings.get(key))) {
+				changes.add(String.format("%s changed", key));
+			}
+		}
+
+		for (String input : optionalInputs) {
+			if (!previous.optionalInputs.contains(input)) {
+				changes.add(String.format("%s added", input));
+			}
+		}
+		for (String input : previous.optionalInputs) {
+			if (!optionalInputs.contains(input)) {
+				changes.add(String.format("%s removed", input));
+			}
+		}
+
+		return changes;
+	}
+
+}
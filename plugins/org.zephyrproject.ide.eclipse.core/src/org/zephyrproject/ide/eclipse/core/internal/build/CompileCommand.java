@@ -6,12 +6,38 @@
 
 package org.zephyrproject.ide.eclipse.core.internal.build;
 
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
 public class CompileCommand {
 
 	private String directory;
 	private String command;
+	private List<String> arguments;
 	private String file;
 
+	public CompileCommand() {
+	}
+
+	/**
+	 * @param directory Working directory of the command.
+	 * @param command Command as a single shell-escaped string, or null.
+	 * @param arguments Command as a list of arguments.
+	 * @param file Main source file compiled by the command.
+	 */
+	public CompileCommand(String directory, String command,
+			List<String> arguments, String file) {
+		this.directory = directory;
+		this.command = command;
+		this.arguments = arguments;
+		this.file = file;
+	}
+
 	public String getDirectory() {
 		return directory;
 	}
@@ -20,8 +46,67 @@ public class CompileCommand {
 		return command;
 	}
 
+	/**
+	 * @return The command split into arguments. This is either the
+	 *         {@code arguments} of the entry, or its {@code command}
+	 *         tokenized, depending on which one the entry has.
+	 */
+	public List<String> getArguments() {
+		return arguments;
+	}
+
 	public String getFile() {
 		return file;
 	}
 
+	/**
+	 * @return Absolute normalized path of the compiled file, or null if it
+	 *         cannot be determined.
+	 */
+	public String getFilePath() {
+		if (file == null) {
+			return null;
+		}
+
+		try {
+			if (directory == null) {
+				return Paths.get(file).normalize().toString();
+			}
+			return Paths.get(directory).resolve(file).normalize().toString();
+		} catch (InvalidPathException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return Digest of this entry, which changes whenever the directory,
+	 *         the command (or arguments) or the file changes.
+	 */
+	public String getDigest() {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			/* Every Java platform is required to support SHA-256 */
+			throw new IllegalStateException(e);
+		}
+
+		for (String s : new String[] { directory, command, file }) {
+			if (s != null) {
+				digest.update(s.getBytes(StandardCharsets.UTF_8));
+			}
+			digest.update((byte) 0);
+		}
+
+		/* Only needed if there is no command string */
+		if ((command == null) && (arguments != null)) {
+			for (String arg : arguments) {
+				digest.update(arg.getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+			}
+		}
+
+		return String.format("%064x", new BigInteger(1, digest.digest())); //$NON-NLS-1$
+	}
+
 }
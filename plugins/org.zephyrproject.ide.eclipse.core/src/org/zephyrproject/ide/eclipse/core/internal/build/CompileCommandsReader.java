@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Platform;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Streaming reader for compile_commands.json.
+ *
+ * Entries are handed over one by one while the file is being read, so the
+ * whole compilation database is never held in memory.
+ */
+public class CompileCommandsReader {
+
+	/**
+	 * Receives the entries of the compilation database.
+	 */
+	@FunctionalInterface
+	public interface Handler {
+
+		/**
+		 * @param entry Entry with the command already tokenized.
+		 * @throws CoreException to stop reading.
+		 */
+		void handle(CompileCommand entry) throws CoreException;
+
+	}
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Path file;
+
+	/**
+	 * @param file Path to compile_commands.json.
+	 */
+	public CompileCommandsReader(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Read the compilation database.
+	 *
+	 * @param handler Handler to be called for each entry.
+	 * @throws IOException if the file cannot be read or parsed.
+	 * @throws CoreException if thrown by the handler.
+	 */
+	public void read(Handler handler) throws IOException, CoreException {
+		try (JsonReader reader = new JsonReader(new BufferedReader(
+				new InputStreamReader(Files.newInputStream(file),
+						StandardCharsets.UTF_8),
+				BUFFER_SIZE))) {
+			reader.beginArray();
+			while (reader.hasNext()) {
+				CompileCommand entry = readEntry(reader);
+				if (entry != null) {
+					handler.handle(entry);
+				}
+			}
+			reader.endArray();
+		} catch (IllegalStateException e) {
+			/* Thrown by JsonReader on unexpected tokens */
+			throw new IOException(e);
+		}
+	}
+
+	private static CompileCommand readEntry(JsonReader reader)
+			throws IOException {
+		String directory = null;
+		String command = null;
+		List<String> arguments = null;
+		String file = null;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				continue;
+			}
+
+			switch (name) {
+			case "directory": //$NON-NLS-1$
+				directory = reader.nextString();
+				break;
+			case "command": //$NON-NLS-1$
+				command = reader.nextString();
+				break;
+			case "arguments": //$NON-NLS-1$
+				arguments = new ArrayList<>();
+				reader.beginArray();
+				while (reader.hasNext()) {
+					arguments.add(reader.nextString());
+				}
+				reader.endArray();
+				break;
+			case "file": //$NON-NLS-1$
+				file = reader.nextString();
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+		reader.endObject();
+
+		if (arguments == null) {
+			if (command == null) {
+				return null;
+			}
+			arguments = tokenize(command);
+		}
+
+		return new CompileCommand(directory, command, arguments, file);
+	}
+
+	/**
+	 * Split a shell-escaped command string into arguments.
+	 *
+	 * Double quotes and backslashes are the special characters. On POSIX
+	 * systems single quotes are honored too, and a backslash escapes any
+	 * character. On Windows, backslashes are path separators and only
+	 * escape double quotes.
+	 *
+	 * @param command The command string.
+	 * @return List of arguments with quoting removed.
+	 */
+	public static List<String> tokenize(String command) {
+		return tokenize(command, Platform.OS_WIN32.equals(Platform.getOS()));
+	}
+
+	static List<String> tokenize(String command, boolean windows) {
+		List<String> args = new ArrayList<>();
+		StringBuilder arg = new StringBuilder();
+		boolean inArg = false;
+		char quote = 0;
+
+		for (int i = 0; i < command.length(); i++) {
+			char c = command.charAt(i);
+
+			if (c == '\\' && (i + 1 < command.length()) && (quote != '\'')) {
+				char next = command.charAt(i + 1);
+				if (!windows || (next == '"')) {
+					arg.append(next);
+					inArg = true;
+					i++;
+					continue;
+				}
+			}
+
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				} else {
+					arg.append(c);
+				}
+			} else if ((c == '"') || (!windows && (c == '\''))) {
+				quote = c;
+				inArg = true;
+			} else if (Character.isWhitespace(c)) {
+				if (inArg) {
+					args.add(arg.toString());
+					arg.setLength(0);
+					inArg = false;
+				}
+			} else {
+				arg.append(c);
+				inArg = true;
+			}
+		}
+
+		if (inArg) {
+			args.add(arg.toString());
+		}
+
+		return args;
+	}
+
+}
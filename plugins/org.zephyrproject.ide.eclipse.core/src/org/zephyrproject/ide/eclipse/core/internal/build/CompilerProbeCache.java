@@ -0,0 +1,476 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.cdt.core.parser.ExtendedScannerInfo;
+import org.eclipse.cdt.core.parser.IExtendedScannerInfo;
+import org.eclipse.core.runtime.IPath;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Workspace wide cache of compiler probe results.
+ *
+ * The result of a compiler probe only depends on the compiler binary, the
+ * normalized flags, the language, the build environment and the contents
+ * of the files given to -imacros and -include, like autoconf.h. All of
+ * these are hashed into a content address, so the results can be shared
+ * across builds, projects and workspace restarts.
+ *
+ * Least recently used entries are evicted once the cache is full.
+ */
+public class CompilerProbeCache {
+
+	private static final String CACHE_FILE = "compilerProbeCache.json"; //$NON-NLS-1$
+
+	/* Maximum number of cached probe results */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private static final char SEPARATOR = '\0';
+
+	/* Options taking a path, either as the next argument or appended */
+	private static final String[] PATH_OPTIONS = { "-I", "-L", "-iquote", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			"-isystem", "-idirafter", "-imacros", "-include", "--sysroot" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+	/* Options taking a file whose macros are part of the probe result */
+	private static final String[] MACRO_FILE_OPTIONS = { "-imacros", //$NON-NLS-1$
+			"-include" }; //$NON-NLS-1$
+
+	private final Path cacheFile;
+
+	private final int capacity;
+
+	private final LinkedHashMap<String, ExtendedScannerInfo> cacheMap;
+
+	/* Content hashes of compilers and macro files, keyed by path */
+	private final Map<Path, FileHash> fileHashes;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private boolean dirty;
+
+	/* Serializes the writers of the cache file */
+	private final Object writeLock = new Object();
+
+	/**
+	 * Content hash of a file, valid as long as its size and modification
+	 * time do not change.
+	 */
+	private static class FileHash {
+		private final long length;
+		private final long modified;
+		private final String hash;
+
+		private FileHash(long length, long modified, String hash) {
+			this.length = length;
+			this.modified = modified;
+			this.hash = hash;
+		}
+	}
+
+	/**
+	 * Persisted form of a cache entry, in LRU order.
+	 */
+	private static class Entry {
+		private String key;
+		private ExtendedScannerInfo info;
+	}
+
+	/**
+	 * @param stateLocation Directory to store the cache file.
+	 * @param capacity Maximum number of entries.
+	 */
+	public CompilerProbeCache(IPath stateLocation, int capacity) {
+		this.cacheFile = stateLocation.append(CACHE_FILE).toFile().toPath();
+		this.capacity = capacity;
+		this.cacheMap = new LinkedHashMap<String, ExtendedScannerInfo>(16,
+				0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, ExtendedScannerInfo> eldest) {
+				return size() > CompilerProbeCache.this.capacity;
+			}
+		};
+		this.fileHashes = new ConcurrentHashMap<>();
+		this.dirty = false;
+
+		readCache();
+	}
+
+	/**
+	 * Compute the content address of a compiler probe.
+	 *
+	 * @param compiler Absolute path to the compiler.
+	 * @param signature Signature of the probe.
+	 * @param buildDirectory Directory where the probe is run.
+	 * @param env Environment variables affecting the compiler.
+	 * @return The key, or null if the compiler cannot be read.
+	 */
+	public String computeKey(Path compiler, CompilerProbeSignature signature,
+			Path buildDirectory, Map<String, String> env) {
+		String compilerHash = getContentHash(compiler);
+		if (compilerHash == null) {
+			return null;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(compiler.toString()).append(SEPARATOR);
+		sb.append(compilerHash).append(SEPARATOR);
+		sb.append(signature.getLanguage()).append(SEPARATOR);
+
+		/* The compiler itself is represented by its path and hash above */
+		List<String> flags = signature.getFlags();
+		boolean relativePaths = false;
+		for (int i = 1; i < flags.size(); i++) {
+			String flag = flags.get(i);
+			sb.append(flag).append(SEPARATOR);
+			relativePaths |= isRelativePath(flags.get(i - 1), flag);
+		}
+
+		/*
+		 * Relative paths are resolved against the build directory, and so
+		 * are the include paths found by the probe.
+		 */
+		if (relativePaths) {
+			sb.append(buildDirectory.toString()).append(SEPARATOR);
+		}
+
+		/* Kconfig changes autoconf.h, not the flags including it */
+		sb.append(getMacroFilesHash(flags, buildDirectory)).append(SEPARATOR);
+
+		for (Map.Entry<String, String> var : env.entrySet()) {
+			sb.append(var.getKey()).append('=').append(var.getValue())
+					.append(SEPARATOR);
+		}
+
+		return toHex(newDigest()
+				.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Check if a path option in the flags is given as a relative path.
+	 */
+	private static boolean isRelativePath(String prevFlag, String flag) {
+		String path = null;
+		for (String option : PATH_OPTIONS) {
+			if (option.equals(prevFlag)) {
+				path = flag;
+				break;
+			} else if (flag.startsWith(option)) {
+				path = flag.substring(option.length());
+				break;
+			}
+		}
+
+		if (path == null) {
+			return false;
+		}
+		if (path.startsWith("=")) { //$NON-NLS-1$
+			path = path.substring(1);
+		}
+		if (path.isEmpty()) {
+			return false;
+		}
+
+		try {
+			return !Paths.get(path).isAbsolute();
+		} catch (InvalidPathException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Get the combined content hash of the files given to -imacros and
+	 * -include, whose macros end up in the result of a probe.
+	 *
+	 * @param arguments Arguments of the compiler.
+	 * @param directory Directory relative paths are resolved against.
+	 * @return The hash, or an empty string if there are no such files.
+	 */
+	public String getMacroFilesHash(List<String> arguments, Path directory) {
+		MessageDigest digest = null;
+		for (int i = 0; i < arguments.size(); i++) {
+			String path = getMacroFile(arguments.get(i));
+			if (path == null) {
+				continue;
+			}
+			if (path.isEmpty()) {
+				/* Given as the next argument */
+				if (++i >= arguments.size()) {
+					break;
+				}
+				path = arguments.get(i);
+			}
+
+			Path file;
+			try {
+				file = directory.resolve(path);
+			} catch (InvalidPathException e) {
+				continue;
+			}
+
+			/* Missing files fail the probe anyway, hash them as empty */
+			String hash = getContentHash(file);
+			if (digest == null) {
+				digest = newDigest();
+			}
+			digest.update(file.toString().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) SEPARATOR);
+			digest.update(((hash != null) ? hash : "") //$NON-NLS-1$
+					.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) SEPARATOR);
+		}
+
+		return (digest != null) ? toHex(digest.digest()) : ""; //$NON-NLS-1$
+	}
+
+	/**
+	 * Get the file of a macro file option.
+	 *
+	 * @return The path appended to the option, an empty string if the path
+	 *         is the next argument, or null if the argument is not such an
+	 *         option.
+	 */
+	private static String getMacroFile(String argument) {
+		for (String option : MACRO_FILE_OPTIONS) {
+			if (argument.startsWith(option)) {
+				String path = argument.substring(option.length());
+				return path.startsWith("=") ? path.substring(1) : path; //$NON-NLS-1$
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the content hash of a file, which is only computed again if the
+	 * size or modification time of the file changes.
+	 *
+	 * @return The hash, or null if the file cannot be read.
+	 */
+	private String getContentHash(Path path) {
+		File file = path.toFile();
+		if (!file.isFile()) {
+			return null;
+		}
+
+		long length = file.length();
+		long modified = file.lastModified();
+		FileHash known = fileHashes.get(path);
+		if ((known != null) && (known.length == length)
+				&& (known.modified == modified)) {
+			return known.hash;
+		}
+
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(path)) {
+			int len;
+			while ((len = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, len);
+			}
+		} catch (IOException e) {
+			return null;
+		}
+
+		String hash = toHex(digest.digest());
+		fileHashes.put(path, new FileHash(length, modified, hash));
+		return hash;
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			/* Every Java platform is required to support SHA-256 */
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Look up a probe result.
+	 *
+	 * @param key Key from {@link #computeKey}.
+	 * @return The cached scanner info, or null if not cached.
+	 */
+	public IExtendedScannerInfo get(String key) {
+		ExtendedScannerInfo info;
+		synchronized (this) {
+			info = cacheMap.get(key);
+			if ((info != null)
+					&& !(info instanceof ScannerInfoInterner.Interned)) {
+				/* Read from storage, share it with the other caches */
+				info = ScannerInfoInterner.getDefault().intern(info);
+				cacheMap.put(key, info);
+			}
+		}
+
+		if (info != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return info;
+	}
+
+	/**
+	 * Store a probe result.
+	 *
+	 * @param key Key from {@link #computeKey}.
+	 * @param info The scanner info.
+	 */
+	public void put(String key, IExtendedScannerInfo info) {
+		if ((key == null) || (info == null)) {
+			return;
+		}
+
+		ExtendedScannerInfo cacheInfo =
+				ScannerInfoInterner.getDefault().intern(info);
+
+		synchronized (this) {
+			cacheMap.put(key, cacheInfo);
+			dirty = true;
+		}
+	}
+
+	/**
+	 * @return Number of lookups which found a cached result.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return Number of lookups which did not find a cached result.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return Number of cached results.
+	 */
+	public synchronized int size() {
+		return cacheMap.size();
+	}
+
+	/**
+	 * Read the cache file from storage.
+	 */
+	private void readCache() {
+		File file = cacheFile.toFile();
+		if (!file.exists()) {
+			return;
+		}
+
+		try (FileReader reader = new FileReader(file)) {
+			Gson gson = new Gson();
+			Type listType = new TypeToken<List<Entry>>() {
+			}.getType();
+			List<Entry> entries = gson.fromJson(reader, listType);
+			if (entries != null) {
+				synchronized (this) {
+					for (Entry entry : entries) {
+						if ((entry.key != null) && (entry.info != null)) {
+							cacheMap.put(entry.key, entry.info);
+						}
+					}
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Write the cache file to storage, if there is anything new.
+	 */
+	public void writeCache() {
+		synchronized (writeLock) {
+			List<Entry> entries = new ArrayList<>();
+			synchronized (this) {
+				if (!dirty) {
+					return;
+				}
+
+				/* Iteration order is from least to most recently used */
+				for (Map.Entry<String, ExtendedScannerInfo> e : cacheMap
+						.entrySet()) {
+					Entry entry = new Entry();
+					entry.key = e.getKey();
+					entry.info = e.getValue();
+					entries.add(entry);
+				}
+				dirty = false;
+			}
+
+			/* Replace the file at once, so readers never see a partial one */
+			Path tmpFile = cacheFile
+					.resolveSibling(cacheFile.getFileName() + ".tmp"); //$NON-NLS-1$
+			try {
+				try (FileWriter writer = new FileWriter(tmpFile.toFile())) {
+					Gson gson = new Gson();
+					gson.toJson(entries, writer);
+				}
+				moveAtomically(tmpFile, cacheFile);
+			} catch (IOException e) {
+				e.printStackTrace();
+				synchronized (this) {
+					dirty = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Move a file over another one, atomically if the file system can.
+	 */
+	static void moveAtomically(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+import org.zephyrproject.ide.eclipse.core.internal.ZephyrHelpers;
+
+/**
+ * Bounded worker pool to run compiler probes concurrently.
+ *
+ * Tasks are submitted from the thread doing scanner discovery, which then
+ * waits for them in {@link #awaitAll(SubMonitor)}. Progress and cancellation
+ * are handled on the waiting thread, as progress monitors are not meant to
+ * be used from multiple threads.
+ */
+public class CompilerProbeExecutor implements AutoCloseable {
+
+	/* How often to check for cancellation while waiting on probes */
+	private static final long POLL_INTERVAL_MS = 100;
+
+	private static final AtomicInteger poolCount = new AtomicInteger();
+
+	private final ExecutorService executor;
+
+	private final CompletionService<Void> completion;
+
+	private int pending;
+
+	/**
+	 * @param width Maximum number of probes to run at the same time. Values
+	 *            less than 1 mean the number of available processors.
+	 */
+	public CompilerProbeExecutor(int width) {
+		if (width < 1) {
+			width = getDefaultWidth();
+		}
+
+		final int poolId = poolCount.incrementAndGet();
+		ThreadFactory threadFactory = new ThreadFactory() {
+
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r,
+						String.format("Zephyr Compiler Probe %d-%d", poolId, //$NON-NLS-1$
+								threadCount.incrementAndGet()));
+				t.setDaemon(true);
+				return t;
+			}
+		};
+
+		this.executor = Executors.newFixedThreadPool(width, threadFactory);
+		this.completion = new ExecutorCompletionService<>(executor);
+		this.pending = 0;
+	}
+
+	/**
+	 * @return Default number of concurrent probes, which is the number of
+	 *         available processors.
+	 */
+	public static int getDefaultWidth() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Queue a probe to be run.
+	 *
+	 * @param task The probe.
+	 */
+	public void submit(Callable<Void> task) {
+		completion.submit(task);
+		pending++;
+	}
+
+	/**
+	 * Wait for all submitted probes to finish.
+	 *
+	 * One unit of work is reported to {@code monitor} for each finished probe.
+	 *
+	 * @param monitor Progress monitor, also checked for cancellation.
+	 * @throws CoreException if any of the probes fails.
+	 * @throws OperationCanceledException if {@code monitor} is canceled.
+	 */
+	public void awaitAll(SubMonitor monitor) throws CoreException {
+		try {
+			while (pending > 0) {
+				if (monitor.isCanceled()) {
+					executor.shutdownNow();
+					throw new OperationCanceledException();
+				}
+
+				Future<Void> done = completion.poll(POLL_INTERVAL_MS,
+						TimeUnit.MILLISECONDS);
+				if (done == null) {
+					continue;
+				}
+
+				pending--;
+				monitor.worked(1);
+
+				try {
+					done.get();
+				} catch (ExecutionException e) {
+					executor.shutdownNow();
+
+					Throwable cause = e.getCause();
+					if (cause instanceof CoreException) {
+						throw (CoreException) cause;
+					}
+					if (cause instanceof OperationCanceledException) {
+						throw (OperationCanceledException) cause;
+					}
+					throw new CoreException(ZephyrHelpers
+							.errorStatus("Compiler probe failed.", cause));
+				}
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		}
+	}
+
+	/**
+	 * Stop the worker threads. Probes still queued are discarded.
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Normalized signature of a compiler probe.
+ *
+ * The compiler probe replaces the source file with an empty one and drops
+ * the output, so the discovered scanner info only depends on the compiler,
+ * the flags and the language. Two compile commands with equal signatures
+ * produce the same scanner info, so only one probe is needed for them.
+ *
+ * The signature also keeps the compile command it has been created from,
+ * which is used to run the probe. This is not part of the equality.
+ */
+public final class CompilerProbeSignature {
+
+	private final List<String> command;
+
+	private final List<String> flags;
+
+	private final String language;
+
+	private final int hashCode;
+
+	/**
+	 * @param command The compile command.
+	 * @param sources Absolute normalized paths of the source files compiled
+	 *            by the command.
+	 * @param buildDirectory Directory where the command is run.
+	 * @param language Language of the source files. As GCC decides the
+	 *            language by the file extension, the extension can be used.
+	 */
+	public CompilerProbeSignature(List<String> command, Set<Path> sources,
+			Path buildDirectory, String language) {
+		this.command = command;
+		this.flags = Collections.unmodifiableList(
+				normalize(command, sources, buildDirectory));
+		this.language = (language == null) ? "" : language; //$NON-NLS-1$
+		this.hashCode = 31 * flags.hashCode() + this.language.hashCode();
+	}
+
+	/**
+	 * Strip the parts of the command which do not affect the scanner info:
+	 * the output file, the dependency file generation and the source files.
+	 */
+	private static List<String> normalize(List<String> command,
+			Set<Path> sources, Path buildDirectory) {
+		List<String> flags = new ArrayList<>(command.size());
+
+		/* The compiler (and maybe ccache) is kept as-is */
+		for (int i = 0; i < command.size(); i++) {
+			String arg = command.get(i);
+
+			switch (arg) {
+			case "-o": //$NON-NLS-1$
+			case "-MF": //$NON-NLS-1$
+			case "-MT": //$NON-NLS-1$
+			case "-MQ": //$NON-NLS-1$
+				/* Skip the option and its argument */
+				i++;
+				continue;
+			case "-MD": //$NON-NLS-1$
+			case "-MMD": //$NON-NLS-1$
+			case "-MP": //$NON-NLS-1$
+				continue;
+			}
+
+			if (arg.startsWith("-o") || arg.startsWith("-MF") //$NON-NLS-1$ //$NON-NLS-2$
+					|| arg.startsWith("-MT") || arg.startsWith("-MQ")) { //$NON-NLS-1$ //$NON-NLS-2$
+				continue;
+			}
+
+			if ((i > 0) && !arg.startsWith("-") //$NON-NLS-1$
+					&& isSource(arg, sources, buildDirectory)) {
+				continue;
+			}
+
+			flags.add(arg);
+		}
+
+		return flags;
+	}
+
+	private static boolean isSource(String arg, Set<Path> sources,
+			Path buildDirectory) {
+		if (arg.length() > 1 && arg.startsWith("\"") && arg.endsWith("\"")) { //$NON-NLS-1$ //$NON-NLS-2$
+			arg = arg.substring(1, arg.length() - 1);
+		}
+
+		try {
+			return sources.contains(buildDirectory.resolve(arg).normalize());
+		} catch (InvalidPathException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return The compile command this signature has been created from.
+	 */
+	public List<String> getCommand() {
+		return command;
+	}
+
+	/**
+	 * @return The normalized compiler and flags.
+	 */
+	public List<String> getFlags() {
+		return flags;
+	}
+
+	/**
+	 * @return The language of the source files.
+	 */
+	public String getLanguage() {
+		return language;
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CompilerProbeSignature)) {
+			return false;
+		}
+
+		CompilerProbeSignature other = (CompilerProbeSignature) obj;
+		return (hashCode == other.hashCode)
+				&& language.equals(other.language)
+				&& flags.equals(other.flags);
+	}
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Result of the analysis of the last ninja run of a build directory.
+ *
+ * All times are in milliseconds, from the start of the ninja run.
+ */
+public class NinjaBuildAnalysis {
+
+	/**
+	 * Timing of a build edge.
+	 */
+	public static final class EdgeTiming {
+
+		private final String rule;
+
+		private final String output;
+
+		/* First explicit input of compile edges, null otherwise */
+		private final String source;
+
+		private final long startTime;
+
+		private final long endTime;
+
+		EdgeTiming(String rule, String output, String source, long startTime,
+				long endTime) {
+			this.rule = rule;
+			this.output = output;
+			this.source = source;
+			this.startTime = startTime;
+			this.endTime = endTime;
+		}
+
+		/**
+		 * @return Name of the rule, or null if the edge is not in the
+		 *         manifest anymore.
+		 */
+		public String getRule() {
+			return rule;
+		}
+
+		/**
+		 * @return First output of the edge.
+		 */
+		public String getOutput() {
+			return output;
+		}
+
+		/**
+		 * @return Source file compiled by the edge, or null if it is not a
+		 *         compile edge.
+		 */
+		public String getSource() {
+			return source;
+		}
+
+		public long getStartTime() {
+			return startTime;
+		}
+
+		public long getEndTime() {
+			return endTime;
+		}
+
+		public long getDuration() {
+			return Math.max(endTime - startTime, 0);
+		}
+
+	}
+
+	private String buildDirectory;
+
+	private int edges;
+
+	private long wallTime;
+
+	private long totalEdgeTime;
+
+	private long criticalPathTime;
+
+	private double averageParallelism;
+
+	private double maxParallelism;
+
+	/* Length of the intervals of the parallelism timeline */
+	private long parallelismInterval;
+
+	private double[] parallelism = new double[0];
+
+	private List<EdgeTiming> criticalPath = new ArrayList<>();
+
+	private List<EdgeTiming> slowestEdges = new ArrayList<>();
+
+	private List<EdgeTiming> slowestSources = new ArrayList<>();
+
+	NinjaBuildAnalysis(String buildDirectory) {
+		this.buildDirectory = buildDirectory;
+	}
+
+	public String getBuildDirectory() {
+		return buildDirectory;
+	}
+
+	/**
+	 * @return Number of edges run.
+	 */
+	public int getEdges() {
+		return edges;
+	}
+
+	/**
+	 * @return Time from the start of the first edge to the end of the last.
+	 */
+	public long getWallTime() {
+		return wallTime;
+	}
+
+	/**
+	 * @return Sum of the durations of all edges.
+	 */
+	public long getTotalEdgeTime() {
+		return totalEdgeTime;
+	}
+
+	/**
+	 * @return Sum of the durations of the edges on the critical path, i.e.
+	 *         the shortest the build could take with unlimited jobs.
+	 */
+	public long getCriticalPathTime() {
+		return criticalPathTime;
+	}
+
+	public double getAverageParallelism() {
+		return averageParallelism;
+	}
+
+	public double getMaxParallelism() {
+		return maxParallelism;
+	}
+
+	public long getParallelismInterval() {
+		return parallelismInterval;
+	}
+
+	/**
+	 * @return Average number of running edges of each interval of
+	 *         {@link #getParallelismInterval()} ms.
+	 */
+	public double[] getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @return Edges of the critical path, first to last.
+	 */
+	public List<EdgeTiming> getCriticalPath() {
+		return criticalPath;
+	}
+
+	/**
+	 * @return Slowest edges, slowest first.
+	 */
+	public List<EdgeTiming> getSlowestEdges() {
+		return slowestEdges;
+	}
+
+	/**
+	 * @return Slowest compile edges, slowest first.
+	 */
+	public List<EdgeTiming> getSlowestSources() {
+		return slowestSources;
+	}
+
+	void setTimes(int edges, long wallTime, long totalEdgeTime) {
+		this.edges = edges;
+		this.wallTime = wallTime;
+		this.totalEdgeTime = totalEdgeTime;
+		this.averageParallelism =
+				(wallTime > 0) ? (double) totalEdgeTime / wallTime : 0;
+	}
+
+	void setCriticalPath(List<EdgeTiming> criticalPath) {
+		this.criticalPath = criticalPath;
+		this.criticalPathTime = 0;
+		for (EdgeTiming timing : criticalPath) {
+			this.criticalPathTime += timing.getDuration();
+		}
+	}
+
+	void setParallelism(long interval, double[] parallelism) {
+		this.parallelismInterval = interval;
+		this.parallelism = parallelism;
+		this.maxParallelism = 0;
+		for (double p : parallelism) {
+			this.maxParallelism = Math.max(this.maxParallelism, p);
+		}
+	}
+
+	void setSlowest(List<EdgeTiming> slowestEdges,
+			List<EdgeTiming> slowestSources) {
+		this.slowestEdges = slowestEdges;
+		this.slowestSources = slowestSources;
+	}
+
+	/**
+	 * Export the analysis as JSON.
+	 *
+	 * @param file File to write.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void write(File file) throws IOException {
+		try (FileWriter writer = new FileWriter(file)) {
+			Gson gson = new GsonBuilder().setPrettyPrinting().create();
+			gson.toJson(this, writer);
+		}
+	}
+
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analysis of where the time of the last ninja run of a build directory
+ * went.
+ *
+ * The timing of the edges comes from .ninja_log, and their dependencies
+ * from the {@link NinjaGraph}. The critical path is the chain of dependent
+ * edges with the longest total duration; the build cannot be faster than
+ * this, no matter the number of jobs.
+ */
+public class NinjaBuildAnalyzer {
+
+	/* Number of intervals of the parallelism timeline */
+	private static final int PARALLELISM_INTERVALS = 100;
+
+	private final Path buildDirectory;
+
+	private NinjaGraph graph;
+
+	/**
+	 * @param buildDirectory Build directory of ninja.
+	 */
+	public NinjaBuildAnalyzer(Path buildDirectory) {
+		this.buildDirectory = buildDirectory;
+	}
+
+	/**
+	 * Analyze the last ninja run.
+	 *
+	 * @param topN Number of slowest edges and sources to report.
+	 * @return The analysis, or null if there is no ninja log.
+	 * @throws IOException if the log or the manifest cannot be read.
+	 */
+	public NinjaBuildAnalysis analyze(int topN) throws IOException {
+		if (!Files.isRegularFile(buildDirectory.resolve(NinjaLog.FILE_NAME))) {
+			return null;
+		}
+
+		List<NinjaLog.Entry> entries =
+				getLastRun(new NinjaLog(buildDirectory).readAll());
+
+		graph = NinjaGraph.get(buildDirectory);
+
+		/* One timing per edge, from the entry of any of its outputs */
+		Map<Object, NinjaLog.Entry> ran = new LinkedHashMap<>();
+		for (NinjaLog.Entry entry : entries) {
+			int node = (graph != null) ? graph.getNode(entry.getOutput()) : -1;
+			int edge = (node >= 0) ? graph.getProducer(node) : -1;
+			ran.put((edge >= 0) ? (Object) edge : entry.getOutput(), entry);
+		}
+
+		NinjaBuildAnalysis analysis =
+				new NinjaBuildAnalysis(buildDirectory.toString());
+
+		List<NinjaBuildAnalysis.EdgeTiming> timings = new ArrayList<>();
+		long start = Long.MAX_VALUE;
+		long end = 0;
+		long total = 0;
+		for (Map.Entry<Object, NinjaLog.Entry> e : ran.entrySet()) {
+			NinjaBuildAnalysis.EdgeTiming timing =
+					getTiming(e.getKey(), e.getValue());
+			timings.add(timing);
+			start = Math.min(start, timing.getStartTime());
+			end = Math.max(end, timing.getEndTime());
+			total += timing.getDuration();
+		}
+		if (timings.isEmpty()) {
+			start = 0;
+		}
+
+		analysis.setTimes(timings.size(), end - start, total);
+		analysis.setCriticalPath(getCriticalPath(ran));
+		setParallelism(analysis, timings, start, end);
+
+		Comparator<NinjaBuildAnalysis.EdgeTiming> slowestFirst =
+				Comparator.comparingLong(
+						NinjaBuildAnalysis.EdgeTiming::getDuration).reversed();
+		timings.sort(slowestFirst);
+
+		List<NinjaBuildAnalysis.EdgeTiming> slowestEdges = new ArrayList<>();
+		List<NinjaBuildAnalysis.EdgeTiming> slowestSources = new ArrayList<>();
+		for (NinjaBuildAnalysis.EdgeTiming timing : timings) {
+			if (slowestEdges.size() < topN) {
+				slowestEdges.add(timing);
+			}
+			if ((slowestSources.size() < topN)
+					&& (timing.getSource() != null)) {
+				slowestSources.add(timing);
+			}
+		}
+		analysis.setSlowest(slowestEdges, slowestSources);
+
+		return analysis;
+	}
+
+	/**
+	 * Get the entries of the last run from the whole log.
+	 *
+	 * Ninja appends the entries of a run as the edges finish, so a run
+	 * starts where the end times go back.
+	 */
+	private static List<NinjaLog.Entry> getLastRun(
+			List<NinjaLog.Entry> entries) {
+		int first = 0;
+		for (int i = 1; i < entries.size(); i++) {
+			if (entries.get(i).getEndTime() < entries.get(i - 1)
+					.getEndTime()) {
+				first = i;
+			}
+		}
+		return entries.subList(first, entries.size());
+	}
+
+	private NinjaBuildAnalysis.EdgeTiming getTiming(Object key,
+			NinjaLog.Entry entry) {
+		if (!(key instanceof Integer)) {
+			/* Not in the manifest anymore */
+			return new NinjaBuildAnalysis.EdgeTiming(null, entry.getOutput(),
+					null, entry.getStartTime(), entry.getEndTime());
+		}
+
+		int edge = (Integer) key;
+		String source = graph.isCompile(edge)
+				? graph.getPath(graph.getInputs(edge)[0])
+				: null;
+		return new NinjaBuildAnalysis.EdgeTiming(graph.getRule(edge),
+				graph.getPath(graph.getOutputs(edge)[0]), source,
+				entry.getStartTime(), entry.getEndTime());
+	}
+
+	/**
+	 * Find the chain of dependent edges with the longest total duration.
+	 *
+	 * Edges which did not run count for nothing, but are followed as they
+	 * may be phony edges grouping others. Besides the inputs in the
+	 * manifest, the dependencies in .ninja_deps are followed, which may be
+	 * generated headers.
+	 *
+	 * @param ran Log entry of each edge run, keyed by edge index.
+	 * @return The critical path, first edge first.
+	 */
+	private List<NinjaBuildAnalysis.EdgeTiming> getCriticalPath(
+			Map<Object, NinjaLog.Entry> ran) {
+		if (graph == null) {
+			return new ArrayList<>();
+		}
+
+		int count = graph.getEdgeCount();
+		long[] finish = new long[count];
+		int[] previous = new int[count];
+		byte[] state = new byte[count];
+		Arrays.fill(previous, -1);
+
+		int last = -1;
+		Deque<Integer> stack = new ArrayDeque<>();
+		for (Object key : ran.keySet()) {
+			if (!(key instanceof Integer)) {
+				continue;
+			}
+
+			stack.push((Integer) key);
+			while (!stack.isEmpty()) {
+				int e = stack.peek();
+				if (state[e] == 0) {
+					/* Compute the dependencies first */
+					state[e] = 1;
+					for (int node : graph.getDependencies(e, true)) {
+						int p = graph.getProducer(node);
+						if ((p >= 0) && (state[p] == 0)) {
+							stack.push(p);
+						}
+					}
+					continue;
+				}
+
+				stack.pop();
+				if (state[e] == 2) {
+					continue;
+				}
+
+				long longest = 0;
+				for (int node : graph.getDependencies(e, true)) {
+					int p = graph.getProducer(node);
+					/* Dependencies still in progress would be a cycle */
+					if ((p >= 0) && (state[p] == 2)
+							&& (finish[p] > longest)) {
+						longest = finish[p];
+						previous[e] = p;
+					}
+				}
+
+				NinjaLog.Entry entry = ran.get(e);
+				long duration = (entry != null)
+						? Math.max(entry.getEndTime() - entry.getStartTime(),
+								0)
+						: 0;
+				finish[e] = longest + duration;
+				state[e] = 2;
+
+				if ((last < 0) || (finish[e] > finish[last])) {
+					last = e;
+				}
+			}
+		}
+
+		List<NinjaBuildAnalysis.EdgeTiming> path = new ArrayList<>();
+		for (int e = last; e >= 0; e = previous[e]) {
+			NinjaLog.Entry entry = ran.get(e);
+			if ((entry != null) && !graph.isPhony(e)) {
+				path.add(getTiming(e, entry));
+			}
+		}
+		Collections.reverse(path);
+
+		return path;
+	}
+
+	private static void setParallelism(NinjaBuildAnalysis analysis,
+			List<NinjaBuildAnalysis.EdgeTiming> timings, long start,
+			long end) {
+		long wallTime = end - start;
+		if (wallTime <= 0) {
+			analysis.setParallelism(0, new double[0]);
+			return;
+		}
+
+		long interval = Math.max(
+				(wallTime + PARALLELISM_INTERVALS - 1) / PARALLELISM_INTERVALS,
+				1);
+		int intervals = (int) ((wallTime + interval - 1) / interval);
+		long[] busy = new long[intervals];
+
+		/* Add the part of each edge overlapping each interval */
+		for (NinjaBuildAnalysis.EdgeTiming timing : timings) {
+			long s = timing.getStartTime() - start;
+			long e = timing.getEndTime() - start;
+			for (int i = (int) (s / interval); (i < intervals)
+					&& (i * interval < e); i++) {
+				long from = Math.max(s, i * interval);
+				long to = Math.min(e, (i + 1) * interval);
+				busy[i] += Math.max(to - from, 0);
+			}
+		}
+
+		double[] parallelism = new double[intervals];
+		for (int i = 0; i < intervals; i++) {
+			parallelism[i] = (double) busy[i] / interval;
+		}
+		analysis.setParallelism(interval, parallelism);
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimate of the remaining time of a ninja build.
+ *
+ * The duration of each edge is taken from the last time it ran, as recorded
+ * in .ninja_log. The edges still pending are not known up front, so they
+ * are assumed to be the ones which finished last in previous builds, minus
+ * those which have finished in this build so far. This gives the long link
+ * and post-processing tail of Zephyr builds its proper weight, instead of
+ * counting it as a few edges among hundreds.
+ *
+ * Without any history, the remaining time is extrapolated from the rate
+ * of finished edges.
+ */
+public class NinjaBuildEstimator {
+
+	/* Minimum interval between reads of the log during the build */
+	private static final long LOG_READ_INTERVAL = 1000;
+
+	private final NinjaLog log;
+
+	private final NinjaLog.Mark mark;
+
+	/* Outputs with their last duration, latest finishing first */
+	private final List<String> outputs = new ArrayList<>();
+
+	private final Map<String, Long> durations = new HashMap<>();
+
+	/* Outputs finished in this build */
+	private Set<String> finished = new HashSet<>();
+
+	private long lastLogRead;
+
+	/**
+	 * Read the history of the build directory. This is to be done before the
+	 * build starts.
+	 *
+	 * @param log Log of ninja in the build directory.
+	 */
+	public NinjaBuildEstimator(NinjaLog log) {
+		this.log = log;
+		this.mark = log.mark();
+
+		Map<String, NinjaLog.Entry> latest = new HashMap<>();
+		try {
+			for (NinjaLog.Entry entry : log.readAll()) {
+				latest.put(entry.getOutput(), entry);
+			}
+		} catch (IOException e) {
+			/* No history, extrapolate instead */
+		}
+
+		List<NinjaLog.Entry> entries = new ArrayList<>(latest.values());
+		entries.sort((a, b) -> Long.compare(b.getEndTime(), a.getEndTime()));
+		for (NinjaLog.Entry entry : entries) {
+			outputs.add(entry.getOutput());
+			durations.put(entry.getOutput(),
+					Math.max(entry.getEndTime() - entry.getStartTime(), 0));
+		}
+	}
+
+	/**
+	 * @return True if there is any history to estimate from.
+	 */
+	public boolean hasHistory() {
+		return !outputs.isEmpty();
+	}
+
+	/**
+	 * Estimate the remaining time of the build.
+	 *
+	 * @param finishedEdges Number of finished edges.
+	 * @param runningEdges Number of running edges.
+	 * @param totalEdges Total number of edges of the build.
+	 * @param elapsed Elapsed time of the build in ms.
+	 * @return The estimated remaining time in ms, or -1 if unknown.
+	 */
+	public long estimateRemaining(int finishedEdges, int runningEdges,
+			int totalEdges, long elapsed) {
+		int pending = totalEdges - finishedEdges;
+		if (pending <= 0) {
+			return 0;
+		}
+
+		if (!hasHistory()) {
+			if (finishedEdges == 0) {
+				return -1;
+			}
+			return (elapsed * pending) / finishedEdges;
+		}
+
+		readFinished();
+
+		/* Pending edges are likely the ones which finished last before */
+		long cost = 0;
+		int counted = 0;
+		for (String output : outputs) {
+			if (counted >= pending) {
+				break;
+			}
+			if (finished.contains(output)) {
+				continue;
+			}
+
+			cost += durations.get(output);
+			counted++;
+		}
+
+		/* Edges without history, e.g. new files, take the average */
+		if ((counted < pending) && (counted > 0)) {
+			cost += (cost / counted) * (pending - counted);
+		}
+
+		return cost / Math.max(runningEdges, 1);
+	}
+
+	private void readFinished() {
+		long now = System.currentTimeMillis();
+		if ((now - lastLogRead) < LOG_READ_INTERVAL) {
+			return;
+		}
+		lastLogRead = now;
+
+		try {
+			List<NinjaLog.Entry> entries = log.readSince(mark);
+			if (entries != null) {
+				Set<String> outputsFinished = new HashSet<>();
+				for (NinjaLog.Entry entry : entries) {
+					outputsFinished.add(entry.getOutput());
+				}
+				finished = outputsFinished;
+			}
+		} catch (IOException e) {
+			/* Keep what is known */
+		}
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Streaming reader of the binary dependency log of ninja (.ninja_deps).
+ *
+ * For edges with "deps = gcc", ninja does not keep the dependency files of
+ * the compiler but records the headers each output depends on in this log.
+ * The log is a sequence of path records, which give the next path ID, and
+ * deps records, which give the IDs of the dependencies of an output. A
+ * later deps record of an output replaces the earlier ones.
+ */
+public class NinjaDepsLog {
+
+	public static final String FILE_NAME = ".ninja_deps"; //$NON-NLS-1$
+
+	private static final byte[] SIGNATURE =
+			"# ninjadeps\n".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+
+	/* Versions with 32-bit and 64-bit modification times */
+	private static final int VERSION_3 = 3;
+
+	private static final int VERSION_4 = 4;
+
+	private static final int MAX_RECORD_SIZE = (1 << 19) - 1;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Receiver of the records of the log.
+	 */
+	public interface Handler {
+
+		/**
+		 * Called for each path record.
+		 *
+		 * @param id ID of the path, one more than the previous one.
+		 * @param path The path.
+		 */
+		void path(int id, String path);
+
+		/**
+		 * Called for each deps record.
+		 *
+		 * The array is reused for the next record, and has to be copied to
+		 * be kept.
+		 *
+		 * @param output ID of the output.
+		 * @param mtime Modification time of the output when it was built.
+		 * @param deps IDs of the dependencies.
+		 * @param count Number of dependencies in the array.
+		 */
+		void deps(int output, long mtime, int[] deps, int count);
+
+	}
+
+	private final Path file;
+
+	/**
+	 * @param buildDirectory Build directory of ninja.
+	 */
+	public NinjaDepsLog(Path buildDirectory) {
+		this.file = buildDirectory.resolve(FILE_NAME);
+	}
+
+	/**
+	 * Read the log.
+	 *
+	 * Like ninja, reading stops at the first truncated or invalid record,
+	 * keeping the records before it.
+	 *
+	 * @param handler Receiver of the records.
+	 * @return False if there is no log, or of an unknown version.
+	 * @throws IOException if the log cannot be read.
+	 */
+	public boolean read(Handler handler) throws IOException {
+		if (!Files.isRegularFile(file)) {
+			return false;
+		}
+
+		try (InputStream in = new BufferedInputStream(
+				Files.newInputStream(file), BUFFER_SIZE)) {
+			byte[] signature = new byte[SIGNATURE.length];
+			if ((readFully(in, signature, signature.length) < 0)
+					|| !Arrays.equals(signature, SIGNATURE)) {
+				return false;
+			}
+
+			ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_SIZE + 1)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			if (readFully(in, record.array(), Integer.BYTES) < 0) {
+				return false;
+			}
+			int version = record.getInt(0);
+			if ((version != VERSION_3) && (version != VERSION_4)) {
+				return false;
+			}
+
+			int[] deps = new int[MAX_RECORD_SIZE / Integer.BYTES];
+			int nextId = 0;
+			while (true) {
+				if (readFully(in, record.array(), Integer.BYTES) < 0) {
+					break;
+				}
+				int header = record.getInt(0);
+				boolean isDeps = (header >>> 31) != 0;
+				int size = header & 0x7FFFFFFF;
+				if ((size > MAX_RECORD_SIZE)
+						|| (readFully(in, record.array(), size) < 0)) {
+					break;
+				}
+
+				if (isDeps) {
+					int timeSize = (version == VERSION_4) ? Long.BYTES
+							: Integer.BYTES;
+					if ((size < Integer.BYTES + timeSize)
+							|| ((size % Integer.BYTES) != 0)) {
+						break;
+					}
+
+					int output = record.getInt(0);
+					long mtime = (version == VERSION_4) ? record.getLong(4)
+							: (record.getInt(4) & 0xFFFFFFFFL);
+					int count = 0;
+					for (int offset = Integer.BYTES + timeSize; offset < size;
+							offset += Integer.BYTES) {
+						deps[count++] = record.getInt(offset);
+					}
+
+					if (!isValid(output, deps, count, nextId)) {
+						break;
+					}
+					handler.deps(output, mtime, deps, count);
+				} else {
+					if (size < Integer.BYTES) {
+						break;
+					}
+
+					/* Path padded to 4 bytes, then the complement of its ID */
+					int length = size - Integer.BYTES;
+					int checksum = record.getInt(length);
+					while ((length > 0) && (record.get(length - 1) == 0)) {
+						length--;
+					}
+					if (checksum != ~nextId) {
+						break;
+					}
+
+					handler.path(nextId, new String(record.array(), 0, length,
+							StandardCharsets.UTF_8));
+					nextId++;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isValid(int output, int[] deps, int count,
+			int paths) {
+		if ((output < 0) || (output >= paths)) {
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			if ((deps[i] < 0) || (deps[i] >= paths)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The number of bytes read, or -1 if the end of the stream was
+	 *         reached before.
+	 */
+	private static int readFully(InputStream in, byte[] buffer, int length)
+			throws IOException {
+		int read = 0;
+		while (read < length) {
+			int n = in.read(buffer, read, length - read);
+			if (n < 0) {
+				return -1;
+			}
+			read += n;
+		}
+		return read;
+	}
+
+}
@@ -0,0 +1,611 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory build graph of a ninja build directory.
+ *
+ * The graph is loaded from build.ninja and .ninja_deps in a single pass
+ * over each. Paths are interned into integer node IDs, and edges (build
+ * statements) are numbered in the order of the manifest. The outputs and
+ * inputs of the edges, and the edges reading each node, are kept in
+ * compressed arrays: the items of edge or node i are found in a flat array
+ * between the offsets i and i + 1 of an offset array.
+ *
+ * The graph is immutable once loaded. Use {@link #get(Path)} to share it
+ * for as long as the files it was loaded from do not change.
+ */
+public final class NinjaGraph {
+
+	private static final String PHONY = "phony"; //$NON-NLS-1$
+
+	/* Part of the names CMake gives to its compile rules */
+	private static final String COMPILER_RULE = "_COMPILER"; //$NON-NLS-1$
+
+	private static final Map<Path, NinjaGraph> cache = new HashMap<>();
+
+	/**
+	 * Growable array of int.
+	 */
+	private static final class IntList {
+
+		private int[] data = new int[1024];
+
+		private int size;
+
+		private void add(int value) {
+			if (size == data.length) {
+				data = Arrays.copyOf(data, size * 2);
+			}
+			data[size++] = value;
+		}
+
+		private int[] toArray() {
+			return Arrays.copyOf(data, size);
+		}
+
+	}
+
+	/**
+	 * Open addressing table from path to ID.
+	 */
+	private static final class PathTable {
+
+		private String[] paths = new String[1024];
+
+		private int size;
+
+		/* ID + 1 of the path in each slot, 0 for free slots */
+		private int[] slots = new int[2048];
+
+		private static int slot(String path, int mask) {
+			int h = path.hashCode();
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		private int get(String path) {
+			int mask = slots.length - 1;
+			for (int i = slot(path, mask);; i = (i + 1) & mask) {
+				int id = slots[i] - 1;
+				if ((id < 0) || paths[id].equals(path)) {
+					return id;
+				}
+			}
+		}
+
+		private int intern(String path) {
+			int mask = slots.length - 1;
+			int i = slot(path, mask);
+			for (;; i = (i + 1) & mask) {
+				int id = slots[i] - 1;
+				if (id < 0) {
+					break;
+				}
+				if (paths[id].equals(path)) {
+					return id;
+				}
+			}
+
+			if (size == paths.length) {
+				paths = Arrays.copyOf(paths, size * 2);
+			}
+			paths[size] = path;
+			slots[i] = ++size;
+
+			if (size * 2 > slots.length) {
+				rehash();
+			}
+			return size - 1;
+		}
+
+		private void rehash() {
+			slots = new int[slots.length * 2];
+			int mask = slots.length - 1;
+			for (int id = 0; id < size; id++) {
+				int i = slot(paths[id], mask);
+				while (slots[i] != 0) {
+					i = (i + 1) & mask;
+				}
+				slots[i] = id + 1;
+			}
+		}
+
+	}
+
+	private final Path buildDirectory;
+
+	/* Size and modification time of the files loaded */
+	private final String stamp;
+
+	private final PathTable paths = new PathTable();
+
+	private final List<String> rules = new ArrayList<>();
+
+	private final Map<String, Integer> ruleIds = new HashMap<>();
+
+	/* Per edge */
+	private int edgeCount;
+
+	private int[] edgeRules;
+
+	private int[] explicitInputCounts;
+
+	private int[] implicitInputCounts;
+
+	private int[] outputOffsets;
+
+	private int[] outputs;
+
+	private int[] inputOffsets;
+
+	private int[] inputs;
+
+	/* Per node */
+	private int[] producers;
+
+	private int[] depsOffsets;
+
+	private int[] deps;
+
+	private int[] consumerOffsets;
+
+	private int[] consumers;
+
+	private NinjaGraph(Path buildDirectory, String stamp) {
+		this.buildDirectory = buildDirectory;
+		this.stamp = stamp;
+	}
+
+	/**
+	 * Get the graph of a build directory, loading it again only if
+	 * build.ninja or .ninja_deps have changed since the last call.
+	 *
+	 * @param buildDirectory Build directory of ninja.
+	 * @return The graph, or null if there is no build.ninja.
+	 * @throws IOException if the files cannot be read.
+	 */
+	public static NinjaGraph get(Path buildDirectory) throws IOException {
+		Path key = buildDirectory.toAbsolutePath().normalize();
+		String stamp = getStamp(key);
+		if (stamp == null) {
+			synchronized (cache) {
+				cache.remove(key);
+			}
+			return null;
+		}
+
+		synchronized (cache) {
+			NinjaGraph graph = cache.get(key);
+			if ((graph != null) && graph.stamp.equals(stamp)) {
+				return graph;
+			}
+		}
+
+		NinjaGraph graph = load(key);
+		synchronized (cache) {
+			if (graph != null) {
+				cache.put(key, graph);
+			}
+		}
+		return graph;
+	}
+
+	private static String getStamp(Path buildDirectory) throws IOException {
+		Path manifest = buildDirectory.resolve(NinjaManifestParser.FILE_NAME);
+		if (!Files.isRegularFile(manifest)) {
+			return null;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (Path file : new Path[] {
+			manifest,
+			buildDirectory.resolve(NinjaDepsLog.FILE_NAME) }) {
+			if (Files.isRegularFile(file)) {
+				BasicFileAttributes attrs =
+						Files.readAttributes(file, BasicFileAttributes.class);
+				sb.append(attrs.size()).append(':')
+						.append(attrs.lastModifiedTime().toMillis());
+			}
+			sb.append(';');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Load the graph of a build directory.
+	 *
+	 * @param buildDirectory Build directory of ninja.
+	 * @return The graph, or null if there is no build.ninja.
+	 * @throws IOException if the files cannot be read.
+	 */
+	public static NinjaGraph load(Path buildDirectory) throws IOException {
+		String stamp = getStamp(buildDirectory);
+		if (stamp == null) {
+			return null;
+		}
+
+		NinjaGraph graph = new NinjaGraph(buildDirectory, stamp);
+		graph.loadManifest();
+		graph.loadDeps();
+		graph.buildConsumers();
+		return graph;
+	}
+
+	private void loadManifest() throws IOException {
+		IntList rulesOfEdges = new IntList();
+		IntList explicitCounts = new IntList();
+		IntList implicitCounts = new IntList();
+		IntList outOffsets = new IntList();
+		IntList outs = new IntList();
+		IntList inOffsets = new IntList();
+		IntList ins = new IntList();
+
+		new NinjaManifestParser(buildDirectory,
+				(rule, edgeOutputs, edgeInputs, explicitInputs,
+						implicitInputs) -> {
+					Integer ruleId = ruleIds.get(rule);
+					if (ruleId == null) {
+						ruleId = rules.size();
+						rules.add(rule);
+						ruleIds.put(rule, ruleId);
+					}
+					rulesOfEdges.add(ruleId);
+					explicitCounts.add(explicitInputs);
+					implicitCounts.add(implicitInputs);
+
+					outOffsets.add(outs.size);
+					for (String output : edgeOutputs) {
+						outs.add(paths.intern(output));
+					}
+					inOffsets.add(ins.size);
+					for (String input : edgeInputs) {
+						ins.add(paths.intern(input));
+					}
+				}).parse();
+		outOffsets.add(outs.size);
+		inOffsets.add(ins.size);
+
+		edgeCount = rulesOfEdges.size;
+		edgeRules = rulesOfEdges.toArray();
+		explicitInputCounts = explicitCounts.toArray();
+		implicitInputCounts = implicitCounts.toArray();
+		outputOffsets = outOffsets.toArray();
+		outputs = outs.toArray();
+		inputOffsets = inOffsets.toArray();
+		inputs = ins.toArray();
+	}
+
+	private void loadDeps() throws IOException {
+		IntList nodeOfId = new IntList();
+		IntList recordOutputs = new IntList();
+		IntList recordOffsets = new IntList();
+		IntList recordDeps = new IntList();
+
+		new NinjaDepsLog(buildDirectory).read(new NinjaDepsLog.Handler() {
+			@Override
+			public void path(int id, String path) {
+				nodeOfId.add(paths.intern(path));
+			}
+
+			@Override
+			public void deps(int output, long mtime, int[] ids, int count) {
+				recordOutputs.add(nodeOfId.data[output]);
+				recordOffsets.add(recordDeps.size);
+				for (int i = 0; i < count; i++) {
+					recordDeps.add(nodeOfId.data[ids[i]]);
+				}
+			}
+		});
+		recordOffsets.add(recordDeps.size);
+
+		int nodeCount = paths.size;
+
+		/* Only the last record of each output counts */
+		int[] lastRecord = new int[nodeCount];
+		Arrays.fill(lastRecord, -1);
+		for (int r = 0; r < recordOutputs.size; r++) {
+			lastRecord[recordOutputs.data[r]] = r;
+		}
+
+		depsOffsets = new int[nodeCount + 1];
+		for (int node = 0; node < nodeCount; node++) {
+			int r = lastRecord[node];
+			int count = (r < 0) ? 0
+					: recordOffsets.data[r + 1] - recordOffsets.data[r];
+			depsOffsets[node + 1] = depsOffsets[node] + count;
+		}
+		deps = new int[depsOffsets[nodeCount]];
+		for (int node = 0; node < nodeCount; node++) {
+			int r = lastRecord[node];
+			if (r >= 0) {
+				System.arraycopy(recordDeps.data, recordOffsets.data[r], deps,
+						depsOffsets[node], depsOffsets[node + 1]
+								- depsOffsets[node]);
+			}
+		}
+
+		producers = new int[nodeCount];
+		Arrays.fill(producers, -1);
+		for (int edge = 0; edge < edgeCount; edge++) {
+			for (int i = outputOffsets[edge]; i < outputOffsets[edge
+					+ 1]; i++) {
+				producers[outputs[i]] = edge;
+			}
+		}
+	}
+
+	/**
+	 * Build the reverse of the explicit, implicit and deps log
+	 * dependencies, i.e. the edges to run again when a node changes.
+	 */
+	private void buildConsumers() {
+		int nodeCount = paths.size;
+		consumerOffsets = new int[nodeCount + 1];
+
+		/* Count, then fill; each edge is listed once per node */
+		int[] lastEdge = new int[nodeCount];
+		Arrays.fill(lastEdge, -1);
+		for (int edge = 0; edge < edgeCount; edge++) {
+			forEachDependency(edge, false, node -> {
+				consumerOffsets[node + 1]++;
+			}, lastEdge);
+		}
+		for (int node = 0; node < nodeCount; node++) {
+			consumerOffsets[node + 1] += consumerOffsets[node];
+		}
+
+		consumers = new int[consumerOffsets[nodeCount]];
+		int[] fill = Arrays.copyOf(consumerOffsets, nodeCount);
+		Arrays.fill(lastEdge, -1);
+		for (int edge = 0; edge < edgeCount; edge++) {
+			int e = edge;
+			forEachDependency(edge, false, node -> {
+				consumers[fill[node]++] = e;
+			}, lastEdge);
+		}
+	}
+
+	private interface NodeConsumer {
+
+		void accept(int node);
+
+	}
+
+	/**
+	 * Call the consumer once for each dependency of an edge.
+	 *
+	 * @param lastEdge Edge each node was last reported for, to skip the
+	 *            nodes already reported, or null to report them all.
+	 */
+	private void forEachDependency(int edge, boolean orderOnly,
+			NodeConsumer consumer, int[] lastEdge) {
+		int end = orderOnly ? inputOffsets[edge + 1]
+				: inputOffsets[edge] + explicitInputCounts[edge]
+						+ implicitInputCounts[edge];
+		for (int i = inputOffsets[edge]; i < end; i++) {
+			report(edge, inputs[i], consumer, lastEdge);
+		}
+
+		for (int o = outputOffsets[edge]; o < outputOffsets[edge + 1]; o++) {
+			int output = outputs[o];
+			for (int i = depsOffsets[output]; i < depsOffsets[output
+					+ 1]; i++) {
+				report(edge, deps[i], consumer, lastEdge);
+			}
+		}
+	}
+
+	private static void report(int edge, int node, NodeConsumer consumer,
+			int[] lastEdge) {
+		if (lastEdge != null) {
+			if (lastEdge[node] == edge) {
+				return;
+			}
+			lastEdge[node] = edge;
+		}
+		consumer.accept(node);
+	}
+
+	/**
+	 * @return The build directory of the graph.
+	 */
+	public Path getBuildDirectory() {
+		return buildDirectory;
+	}
+
+	public int getNodeCount() {
+		return paths.size;
+	}
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * @param path Path as spelled in build.ninja or .ninja_deps.
+	 * @return ID of the node, or -1 if unknown.
+	 */
+	public int getNode(String path) {
+		return paths.get(path);
+	}
+
+	/**
+	 * Find the node of a file, spelled either as an absolute path or
+	 * relative to the build directory.
+	 *
+	 * @param file The file.
+	 * @return ID of the node, or -1 if unknown.
+	 */
+	public int findNode(Path file) {
+		Path absolute = buildDirectory.resolve(file).normalize();
+		int node = paths.get(absolute.toString());
+		if (node < 0) {
+			node = paths.get(absolute.toString().replace('\\', '/'));
+		}
+		if ((node < 0) && absolute.startsWith(buildDirectory)) {
+			node = paths.get(buildDirectory.relativize(absolute).toString()
+					.replace('\\', '/'));
+		}
+		return node;
+	}
+
+	/**
+	 * @param node ID of the node.
+	 * @return Path of the node.
+	 */
+	public String getPath(int node) {
+		return paths.paths[node];
+	}
+
+	/**
+	 * @param node ID of the node.
+	 * @return The edge producing the node, or -1 if it is a source.
+	 */
+	public int getProducer(int node) {
+		return producers[node];
+	}
+
+	/**
+	 * @param edge Index of the edge.
+	 * @return Name of the rule of the edge.
+	 */
+	public String getRule(int edge) {
+		return rules.get(edgeRules[edge]);
+	}
+
+	public boolean isPhony(int edge) {
+		return PHONY.equals(getRule(edge));
+	}
+
+	/**
+	 * @param edge Index of the edge.
+	 * @return True if the edge compiles its first explicit input.
+	 */
+	public boolean isCompile(int edge) {
+		return getRule(edge).contains(COMPILER_RULE)
+				&& (explicitInputCounts[edge] > 0);
+	}
+
+	/**
+	 * @param edge Index of the edge.
+	 * @return IDs of the explicit and implicit outputs of the edge.
+	 */
+	public int[] getOutputs(int edge) {
+		return Arrays.copyOfRange(outputs, outputOffsets[edge],
+				outputOffsets[edge + 1]);
+	}
+
+	/**
+	 * @param edge Index of the edge.
+	 * @return IDs of the explicit, implicit and order-only inputs of the
+	 *         edge, in this order.
+	 */
+	public int[] getInputs(int edge) {
+		return Arrays.copyOfRange(inputs, inputOffsets[edge],
+				inputOffsets[edge + 1]);
+	}
+
+	public int getExplicitInputCount(int edge) {
+		return explicitInputCounts[edge];
+	}
+
+	public int getImplicitInputCount(int edge) {
+		return implicitInputCounts[edge];
+	}
+
+	/**
+	 * @param node ID of an output.
+	 * @return IDs of the dependencies of the output in .ninja_deps.
+	 */
+	public int[] getDeps(int node) {
+		return Arrays.copyOfRange(deps, depsOffsets[node],
+				depsOffsets[node + 1]);
+	}
+
+	/**
+	 * Get all the nodes an edge depends on, i.e. its inputs and the
+	 * dependencies of its outputs in .ninja_deps.
+	 *
+	 * @param edge Index of the edge.
+	 * @param orderOnly True to include the order-only inputs.
+	 * @return IDs of the nodes, sorted and without duplicates.
+	 */
+	public int[] getDependencies(int edge, boolean orderOnly) {
+		IntList nodes = new IntList();
+		forEachDependency(edge, orderOnly, nodes::add, null);
+
+		int[] sorted = nodes.toArray();
+		Arrays.sort(sorted);
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if ((count == 0) || (sorted[i] != sorted[count - 1])) {
+				sorted[count++] = sorted[i];
+			}
+		}
+		return Arrays.copyOf(sorted, count);
+	}
+
+	/**
+	 * Get the edges reading a node, i.e. which have to run again when it
+	 * changes. Order-only inputs are not included.
+	 *
+	 * @param node ID of the node.
+	 * @return Indices of the edges.
+	 */
+	public int[] getConsumers(int node) {
+		return Arrays.copyOfRange(consumers, consumerOffsets[node],
+				consumerOffsets[node + 1]);
+	}
+
+	/**
+	 * Get the edges which have to run again when some nodes change, either
+	 * reading them directly or through the outputs of other edges.
+	 *
+	 * @param nodes IDs of the nodes changed.
+	 * @param transitive False to only get the edges reading the nodes.
+	 * @return Indices of the edges.
+	 */
+	public BitSet getAffectedEdges(int[] nodes, boolean transitive) {
+		BitSet edges = new BitSet(edgeCount);
+		IntList pending = new IntList();
+		for (int node : nodes) {
+			pending.add(node);
+		}
+
+		for (int p = 0; p < pending.size; p++) {
+			int node = pending.data[p];
+			for (int i = consumerOffsets[node]; i < consumerOffsets[node
+					+ 1]; i++) {
+				int edge = consumers[i];
+				if (edges.get(edge)) {
+					continue;
+				}
+				edges.set(edge);
+
+				if (transitive) {
+					for (int o = outputOffsets[edge]; o < outputOffsets[edge
+							+ 1]; o++) {
+						pending.add(outputs[o]);
+					}
+				}
+			}
+		}
+		return edges;
+	}
+
+}
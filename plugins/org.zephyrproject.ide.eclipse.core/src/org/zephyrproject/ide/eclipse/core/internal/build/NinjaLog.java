@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reader for the build log of ninja (.ninja_log).
+ *
+ * Ninja appends a line for each output of every build edge it runs, with
+ * the start and end time of the edge relative to the start of the ninja
+ * run. Reading the entries appended during a build tells which outputs
+ * the build has written.
+ */
+public class NinjaLog {
+
+	public static final String FILE_NAME = ".ninja_log"; //$NON-NLS-1$
+
+	/* Number of bytes before a mark to check if the log has been rewritten */
+	private static final int TAIL_SIZE = 256;
+
+	private final Path file;
+
+	/**
+	 * An entry of the log.
+	 */
+	public static final class Entry {
+
+		private final long startTime;
+
+		private final long endTime;
+
+		private final long mtime;
+
+		private final String output;
+
+		private Entry(long startTime, long endTime, long mtime,
+				String output) {
+			this.startTime = startTime;
+			this.endTime = endTime;
+			this.mtime = mtime;
+			this.output = output;
+		}
+
+		/**
+		 * @return Start of the edge in milliseconds, from the start of the
+		 *         ninja run.
+		 */
+		public long getStartTime() {
+			return startTime;
+		}
+
+		/**
+		 * @return End of the edge in milliseconds, from the start of the
+		 *         ninja run.
+		 */
+		public long getEndTime() {
+			return endTime;
+		}
+
+		/**
+		 * @return Modification time of the output as recorded by ninja.
+		 */
+		public long getMtime() {
+			return mtime;
+		}
+
+		/**
+		 * @return Path of the output, relative to the build directory.
+		 */
+		public String getOutput() {
+			return output;
+		}
+
+	}
+
+	/**
+	 * A position in the log.
+	 */
+	public static final class Mark {
+
+		private final long offset;
+
+		private final byte[] tail;
+
+		private Mark(long offset, byte[] tail) {
+			this.offset = offset;
+			this.tail = tail;
+		}
+
+	}
+
+	/**
+	 * @param buildDirectory Build directory of ninja.
+	 */
+	public NinjaLog(Path buildDirectory) {
+		this.file = buildDirectory.resolve(FILE_NAME);
+	}
+
+	/**
+	 * Mark the current end of the log.
+	 *
+	 * @return The mark.
+	 */
+	public Mark mark() {
+		if (!Files.isRegularFile(file)) {
+			return new Mark(0, new byte[0]);
+		}
+
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) { //$NON-NLS-1$
+			long offset = raf.length();
+			return new Mark(offset, readTail(raf, offset));
+		} catch (IOException e) {
+			return new Mark(0, new byte[0]);
+		}
+	}
+
+	private static byte[] readTail(RandomAccessFile raf, long offset)
+			throws IOException {
+		int size = (int) Math.min(offset, TAIL_SIZE);
+		byte[] tail = new byte[size];
+		raf.seek(offset - size);
+		raf.readFully(tail);
+		return tail;
+	}
+
+	/**
+	 * Read the entries appended after a mark.
+	 *
+	 * Ninja rewrites the log from time to time to drop outdated entries. If
+	 * this has happened since the mark, the new entries cannot be told
+	 * apart from the old ones.
+	 *
+	 * @param mark Mark from {@link #mark()}.
+	 * @return The entries, or null if the log has been rewritten.
+	 * @throws IOException if the log cannot be read.
+	 */
+	public List<Entry> readSince(Mark mark) throws IOException {
+		if (!Files.isRegularFile(file)) {
+			return (mark.offset == 0) ? new ArrayList<>() : null;
+		}
+
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) { //$NON-NLS-1$
+			if (raf.length() < mark.offset) {
+				return null;
+			}
+			if (!Arrays.equals(mark.tail, readTail(raf, mark.offset))) {
+				return null;
+			}
+
+			raf.seek(mark.offset);
+			return read(new BufferedReader(new InputStreamReader(
+					Channels.newInputStream(raf.getChannel()),
+					StandardCharsets.UTF_8)));
+		}
+	}
+
+	/**
+	 * Read all entries of the log.
+	 *
+	 * @return The entries, or an empty list if there is no log.
+	 * @throws IOException if the log cannot be read.
+	 */
+	public List<Entry> readAll() throws IOException {
+		if (!Files.isRegularFile(file)) {
+			return new ArrayList<>();
+		}
+
+		try (BufferedReader reader =
+				Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return read(reader);
+		}
+	}
+
+	private static List<Entry> read(BufferedReader reader) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+
+		/* start, end, mtime, output, command hash; separated by tabs */
+		for (String line = reader.readLine(); line != null; line =
+				reader.readLine()) {
+			if (line.startsWith("#")) { //$NON-NLS-1$
+				continue;
+			}
+
+			String[] fields = line.split("\t"); //$NON-NLS-1$
+			if (fields.length < 4) {
+				continue;
+			}
+
+			try {
+				entries.add(new Entry(Long.parseLong(fields[0]),
+						Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+						fields[3]));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+		}
+
+		return entries;
+	}
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streaming parser of the build statements of a ninja manifest
+ * (build.ninja).
+ *
+ * Only the build statements are reported, together with those of the
+ * included manifests. Rules, pools and variable bindings are skipped, and
+ * variable references in paths are left as they are, as the manifests
+ * generated by CMake spell out the paths.
+ */
+public class NinjaManifestParser {
+
+	public static final String FILE_NAME = "build.ninja"; //$NON-NLS-1$
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final String BUILD = "build "; //$NON-NLS-1$
+
+	private static final String INCLUDE = "include "; //$NON-NLS-1$
+
+	private static final String SUBNINJA = "subninja "; //$NON-NLS-1$
+
+	/**
+	 * Receiver of the build statements.
+	 */
+	public interface Handler {
+
+		/**
+		 * Called for each build statement.
+		 *
+		 * The lists are reused for the next statement, and have to be
+		 * copied to be kept.
+		 *
+		 * @param rule Name of the rule.
+		 * @param outputs Explicit and implicit outputs.
+		 * @param inputs Explicit, implicit and order-only inputs, in this
+		 *            order.
+		 * @param explicitInputs Number of explicit inputs.
+		 * @param implicitInputs Number of implicit inputs.
+		 */
+		void edge(String rule, List<String> outputs, List<String> inputs,
+				int explicitInputs, int implicitInputs);
+
+	}
+
+	private final Path buildDirectory;
+
+	private final Handler handler;
+
+	private final Set<Path> parsed = new HashSet<>();
+
+	/* Reused for every build statement */
+	private final List<String> outputs = new ArrayList<>();
+
+	private final List<String> inputs = new ArrayList<>();
+
+	private final StringBuilder token = new StringBuilder();
+
+	/**
+	 * @param buildDirectory Build directory of ninja.
+	 * @param handler Receiver of the build statements.
+	 */
+	public NinjaManifestParser(Path buildDirectory, Handler handler) {
+		this.buildDirectory = buildDirectory;
+		this.handler = handler;
+	}
+
+	/**
+	 * Parse the manifest of the build directory.
+	 *
+	 * @throws IOException if the manifest cannot be read.
+	 */
+	public void parse() throws IOException {
+		parse(buildDirectory.resolve(FILE_NAME));
+	}
+
+	private void parse(Path manifest) throws IOException {
+		if (!parsed.add(manifest.toAbsolutePath().normalize())) {
+			return;
+		}
+
+		try (BufferedReader reader = new BufferedReader(
+				Files.newBufferedReader(manifest, StandardCharsets.UTF_8),
+				BUFFER_SIZE)) {
+			for (String line = readLine(reader); line != null; line =
+					readLine(reader)) {
+				if (line.startsWith(BUILD)) {
+					parseBuild(line);
+				} else if (line.startsWith(INCLUDE)) {
+					parseInclude(line.substring(INCLUDE.length()));
+				} else if (line.startsWith(SUBNINJA)) {
+					parseInclude(line.substring(SUBNINJA.length()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read a line, joined with the following ones if it ends with the line
+	 * continuation ($ at the end of the line).
+	 */
+	private static String readLine(BufferedReader reader) throws IOException {
+		String line = reader.readLine();
+		if ((line == null) || !isContinued(line)) {
+			return line;
+		}
+
+		StringBuilder sb = new StringBuilder(line);
+		do {
+			sb.setLength(sb.length() - 1);
+			line = reader.readLine();
+			if (line == null) {
+				break;
+			}
+
+			int start = 0;
+			while ((start < line.length()) && (line.charAt(start) == ' ')) {
+				start++;
+			}
+			sb.append(line, start, line.length());
+		} while (isContinued(line));
+
+		return sb.toString();
+	}
+
+	private static boolean isContinued(String line) {
+		/* An odd number of trailing $, as $$ is an escaped $ */
+		int count = 0;
+		for (int i = line.length() - 1; (i >= 0)
+				&& (line.charAt(i) == '$'); i--) {
+			count++;
+		}
+		return (count % 2) == 1;
+	}
+
+	private void parseInclude(String path) throws IOException {
+		token.setLength(0);
+		int end = unescape(path, 0, false);
+		if (end < path.length()) {
+			return;
+		}
+
+		Path included = buildDirectory.resolve(token.toString());
+		if (Files.isRegularFile(included)) {
+			parse(included);
+		}
+	}
+
+	/**
+	 * Unescape a path into {@link #token}.
+	 *
+	 * @return The index of the character ending the path.
+	 */
+	private int unescape(String line, int start, boolean inOutputs) {
+		int i = start;
+		while (i < line.length()) {
+			char c = line.charAt(i);
+			if (c == '$') {
+				char next = (i + 1 < line.length()) ? line.charAt(i + 1) : 0;
+				if ((next == ' ') || (next == ':') || (next == '$')) {
+					token.append(next);
+					i += 2;
+					continue;
+				}
+			} else if ((c == ' ') || (inOutputs && (c == ':'))) {
+				break;
+			}
+
+			token.append(c);
+			i++;
+		}
+		return i;
+	}
+
+	/* build outputs [| implicit]: rule inputs [| implicit] [|| order-only] */
+	private void parseBuild(String line) {
+		outputs.clear();
+		inputs.clear();
+
+		String rule = null;
+		int explicitInputs = -1;
+		int orderOnlyStart = -1;
+		boolean inOutputs = true;
+
+		int i = BUILD.length();
+		while (i < line.length()) {
+			char c = line.charAt(i);
+			if (c == ' ') {
+				i++;
+				continue;
+			}
+			if (inOutputs && (c == ':')) {
+				inOutputs = false;
+				i++;
+				continue;
+			}
+
+			token.setLength(0);
+			i = unescape(line, i, inOutputs);
+			String path = token.toString();
+
+			if (inOutputs) {
+				if (!"|".equals(path)) { //$NON-NLS-1$
+					outputs.add(path);
+				}
+			} else if (rule == null) {
+				rule = path;
+			} else if ("|".equals(path)) { //$NON-NLS-1$
+				explicitInputs = inputs.size();
+			} else if ("||".equals(path)) { //$NON-NLS-1$
+				if (explicitInputs < 0) {
+					explicitInputs = inputs.size();
+				}
+				orderOnlyStart = inputs.size();
+			} else if ("|@".equals(path)) { //$NON-NLS-1$
+				/* Validations are not dependencies */
+				break;
+			} else {
+				inputs.add(path);
+			}
+		}
+
+		if ((rule == null) || outputs.isEmpty()) {
+			return;
+		}
+
+		if (explicitInputs < 0) {
+			explicitInputs = inputs.size();
+		}
+		if (orderOnlyStart < 0) {
+			orderOnlyStart = inputs.size();
+		}
+
+		handler.edge(rule, outputs, inputs, explicitInputs,
+				orderOnlyStart - explicitInputs);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019 Intel Corporation
+ * Copyright (c) 2019-2020 Intel Corporation
  *
  * SPDX-License-Identifier: EPL-2.0
  */
@@ -14,19 +14,46 @@ import org.eclipse.core.runtime.IProgressMonitor;
 
 /**
  * Simple console parser to update progress due to build output
+ *
+ * Ninja is told to print the finished, total and running edges and the
+ * elapsed time with {@link #NINJA_STATUS}. The progress is based on the
+ * estimated remaining time, and published to the {@link BuildStatusManager}.
  */
 public class NinjaProgressMonitor implements IConsoleParser {
 
+	public static final String NINJA_STATUS_ENV = "NINJA_STATUS"; //$NON-NLS-1$
+
+	/**
+	 * Finished/total edges, running edges and elapsed seconds.
+	 */
+	public static final String NINJA_STATUS = "[%f/%t %r %e] "; //$NON-NLS-1$
+
 	private IProgressMonitor monitor;
 
 	private int lastPercentage;
 
+	private Pattern statusPattern;
+
 	private Pattern linePattern;
 
-	public NinjaProgressMonitor(IProgressMonitor m) {
+	private final String project;
+
+	private final NinjaBuildEstimator estimator;
+
+	private final long startTime;
+
+	private BuildStatus status;
+
+	public NinjaProgressMonitor(IProgressMonitor m, String project,
+			NinjaBuildEstimator estimator) {
 		this.monitor = m;
 		this.lastPercentage = 0;
+		this.statusPattern = Pattern
+				.compile("\\[([0-9]+)/([0-9]+) ([0-9]+) ([0-9.]+)\\] (.+)");
 		this.linePattern = Pattern.compile("\\[([0-9]+)/([0-9]+)\\] (.+)");
+		this.project = project;
+		this.estimator = estimator;
+		this.startTime = System.currentTimeMillis();
 	}
 
 	@Override
@@ -35,35 +62,61 @@ public class NinjaProgressMonitor implements IConsoleParser {
 			return false;
 		}
 
-		Matcher matcher = linePattern.matcher(line);
-		if (matcher.matches()) {
-			String sCurStep = matcher.group(1);
-			String sAllSteps = matcher.group(2);
-			String msg = matcher.group(3);
-
-			try {
-				int curStep = Integer.valueOf(sCurStep);
-				int allSteps = Integer.valueOf(sAllSteps);
-
-				int percentage = (curStep * 100) / allSteps;
-
-				if (percentage != lastPercentage) {
-					monitor.worked(percentage - lastPercentage);
-					lastPercentage = percentage;
+		int curStep;
+		int allSteps;
+		int running = 1;
+		long elapsed = System.currentTimeMillis() - startTime;
+		String msg;
+
+		try {
+			Matcher matcher = statusPattern.matcher(line);
+			if (matcher.matches()) {
+				curStep = Integer.valueOf(matcher.group(1));
+				allSteps = Integer.valueOf(matcher.group(2));
+				running = Integer.valueOf(matcher.group(3));
+				elapsed = (long) (Double.valueOf(matcher.group(4)) * 1000);
+				msg = matcher.group(5);
+			} else {
+				/* NINJA_STATUS may have been overridden */
+				matcher = linePattern.matcher(line);
+				if (!matcher.matches()) {
+					return false;
 				}
-			} catch (NumberFormatException nfe) {
+				curStep = Integer.valueOf(matcher.group(1));
+				allSteps = Integer.valueOf(matcher.group(2));
+				msg = matcher.group(3);
 			}
+		} catch (NumberFormatException nfe) {
+			return false;
+		}
 
-			monitor.subTask(msg);
+		long remaining = estimator.estimateRemaining(curStep, running,
+				allSteps, elapsed);
+		status = new BuildStatus(project, curStep, running, allSteps,
+				elapsed, remaining, msg, false);
+		BuildStatusManager.getDefault().update(status);
 
-			return true;
+		int percentage = status.getPercentage();
+		if (percentage > lastPercentage) {
+			monitor.worked(percentage - lastPercentage);
+			lastPercentage = percentage;
 		}
 
-		return false;
+		if (remaining >= 0) {
+			monitor.subTask(String.format("%s (%s left)", msg, //$NON-NLS-1$
+					BuildStatus.formatDuration(remaining)));
+		} else {
+			monitor.subTask(msg);
+		}
+
+		return true;
 	}
 
 	@Override
 	public void shutdown() {
+		if (status != null) {
+			BuildStatusManager.getDefault().update(status.toDone());
+		}
 	}
 
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Index of file system locations to workspace files for a project.
+ *
+ * Looking up the files for a location in the workspace root goes through
+ * every project and linked folder, which is slow when a big tree like
+ * ZEPHYR_BASE is linked into the project. Instead, locations under the
+ * project or one of its linked folders are mapped directly by their path
+ * relative to it. Only other locations are looked up in the workspace root.
+ *
+ * Each location is only looked up once. The index is meant to be used for
+ * one scanner discovery pass, as it does not follow changes of the links.
+ */
+public class ResourceLocationIndex {
+
+	/* Locations of the project and its linked folders, longest first */
+	private final List<Path> rootLocations = new ArrayList<>();
+
+	private final List<IContainer> rootContainers = new ArrayList<>();
+
+	private final Map<Path, IFile[]> files = new ConcurrentHashMap<>();
+
+	/**
+	 * @param project The project whose files are to be found.
+	 * @throws CoreException if the project cannot be read.
+	 */
+	public ResourceLocationIndex(IProject project) throws CoreException {
+		addRoot(project);
+		addLinkedFolders(project);
+	}
+
+	private void addLinkedFolders(IContainer container) throws CoreException {
+		for (IResource member : container.members()) {
+			if (!(member instanceof IFolder)) {
+				continue;
+			}
+
+			IFolder folder = (IFolder) member;
+			if (folder.isVirtual()) {
+				addLinkedFolders(folder);
+			} else if (folder.isLinked()) {
+				addRoot(folder);
+			}
+		}
+	}
+
+	private void addRoot(IContainer container) {
+		IPath location = container.getLocation();
+		if (location == null) {
+			return;
+		}
+
+		Path path = location.toFile().toPath().normalize();
+
+		int i = 0;
+		while ((i < rootLocations.size())
+				&& (rootLocations.get(i).getNameCount() >= path
+						.getNameCount())) {
+			i++;
+		}
+		rootLocations.add(i, path);
+		rootContainers.add(i, container);
+	}
+
+	/**
+	 * Find the workspace files for a location.
+	 *
+	 * @param location Absolute normalized path of the file.
+	 * @return The files, which may not exist yet.
+	 */
+	public IFile[] findFiles(Path location) {
+		return files.computeIfAbsent(location, this::lookup);
+	}
+
+	private IFile[] lookup(Path location) {
+		for (int i = 0; i < rootLocations.size(); i++) {
+			Path root = rootLocations.get(i);
+			if (!location.startsWith(root) || location.equals(root)) {
+				continue;
+			}
+
+			IPath relative = org.eclipse.core.runtime.Path
+					.fromOSString(root.relativize(location).toString());
+			return new IFile[] {
+				rootContainers.get(i).getFile(relative)
+			};
+		}
+
+		/* Not in this project */
+		return ResourcesPlugin.getWorkspace().getRoot()
+				.findFilesForLocationURI(location.toUri());
+	}
+
+	/**
+	 * @return Number of locations looked up.
+	 */
+	public int size() {
+		return files.size();
+	}
+
+}
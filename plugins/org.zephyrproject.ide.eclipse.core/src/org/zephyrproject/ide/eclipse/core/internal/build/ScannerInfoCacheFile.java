@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.parser.ExtendedScannerInfo;
+import org.eclipse.core.runtime.Platform;
+
+/**
+ * Binary storage format of the scanner info cache.
+ *
+ * Each distinct string (include path, macro name and value, file) is
+ * stored once in a string table, and each distinct scanner info is stored
+ * once as a record of string table references. Files only refer to the
+ * index of their scanner info.
+ *
+ * All integers are big-endian. The layout is:
+ *
+ * <pre>
+ * header:   magic, version, string count, info count, file count,
+ *           default count, digest count, discovery time (64 bits, not in
+ *           version 1)
+ * offsets:  absolute position of each string, then of each info record
+ * files:    (path string, info index) for each file
+ * defaults: (extension string, info index) for each extension
+ * digests:  (path string, digest string) for each compile command
+ * strings:  (byte length, UTF-8 bytes) for each string
+ * infos:    for each info, the number of entries followed by the string
+ *           indices of the macros (name and value), include paths, macro
+ *           files, include files and local include paths
+ * </pre>
+ *
+ * The file is read through a memory mapped buffer, and strings and scanner
+ * info records are only decoded when first needed.
+ */
+public final class ScannerInfoCacheFile {
+
+	private static final int MAGIC = 0x5A534943; /* "ZSIC" */
+
+	private static final int VERSION = 2;
+
+	/* Version without the discovery time, still read */
+	private static final int VERSION_1 = 1;
+
+	private static final int HEADER_SIZE = 7 * Integer.BYTES + Long.BYTES;
+
+	private static final int HEADER_SIZE_1 = 7 * Integer.BYTES;
+
+	private final ByteBuffer buffer;
+
+	private final int stringCount;
+
+	private final int infoCount;
+
+	private final int fileCount;
+
+	private final int defaultCount;
+
+	private final int digestCount;
+
+	private final long discoveryTime;
+
+	private final int headerSize;
+
+	private final int fileTable;
+
+	private final int defaultTable;
+
+	private final int digestTable;
+
+	private final String[] strings;
+
+	private final ExtendedScannerInfo[] infos;
+
+	private ScannerInfoCacheFile(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+
+		if ((buffer.limit() < HEADER_SIZE_1) || (buffer.getInt(0) != MAGIC)) {
+			throw new IOException("Not a scanner info cache file"); //$NON-NLS-1$
+		}
+		if (buffer.getInt(4) == VERSION) {
+			this.headerSize = HEADER_SIZE;
+		} else if (buffer.getInt(4) == VERSION_1) {
+			this.headerSize = HEADER_SIZE_1;
+		} else {
+			throw new IOException(String.format(
+					"Unsupported scanner info cache version %d", //$NON-NLS-1$
+					buffer.getInt(4)));
+		}
+		if (buffer.limit() < headerSize) {
+			throw new IOException("Truncated scanner info cache file"); //$NON-NLS-1$
+		}
+
+		this.stringCount = buffer.getInt(8);
+		this.infoCount = buffer.getInt(12);
+		this.fileCount = buffer.getInt(16);
+		this.defaultCount = buffer.getInt(20);
+		this.digestCount = buffer.getInt(24);
+		this.discoveryTime =
+				(headerSize == HEADER_SIZE) ? buffer.getLong(28) : 0;
+
+		this.fileTable = headerSize + (stringCount + infoCount) * 4;
+		this.defaultTable = fileTable + fileCount * 8;
+		this.digestTable = defaultTable + defaultCount * 8;
+		if ((stringCount < 0) || (infoCount < 0) || (fileCount < 0)
+				|| (defaultCount < 0) || (digestCount < 0)
+				|| (digestTable + digestCount * 8 > buffer.limit())) {
+			throw new IOException("Truncated scanner info cache file"); //$NON-NLS-1$
+		}
+
+		this.strings = new String[stringCount];
+		this.infos = new ExtendedScannerInfo[infoCount];
+	}
+
+	/**
+	 * Open a scanner info cache file.
+	 *
+	 * @param file Path to the file.
+	 * @return The opened file.
+	 * @throws IOException if the file cannot be read, or is not a scanner
+	 *             info cache file of a supported version.
+	 */
+	public static ScannerInfoCacheFile open(Path file) throws IOException {
+		try (FileChannel channel =
+				FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer;
+			if (Platform.OS_WIN32.equals(Platform.getOS())) {
+				/* Mapped files cannot be replaced on Windows */
+				buffer = ByteBuffer.allocate((int) channel.size());
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer) < 0) {
+						break;
+					}
+				}
+				buffer.flip();
+			} else {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+						channel.size());
+			}
+			return new ScannerInfoCacheFile(buffer);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * @return Number of files with scanner info.
+	 */
+	public int getFileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * @param i Index of the file.
+	 * @return Location of the file.
+	 */
+	public synchronized String getFilePath(int i) {
+		return getString(buffer.getInt(fileTable + i * 8));
+	}
+
+	/**
+	 * @param i Index of the file.
+	 * @return Index of the scanner info of the file.
+	 */
+	public int getFileInfo(int i) {
+		return buffer.getInt(fileTable + i * 8 + 4);
+	}
+
+	/**
+	 * @return Number of default scanner infos.
+	 */
+	public int getDefaultCount() {
+		return defaultCount;
+	}
+
+	/**
+	 * @param i Index of the default scanner info.
+	 * @return File extension the default scanner info is for.
+	 */
+	public synchronized String getDefaultExtension(int i) {
+		return getString(buffer.getInt(defaultTable + i * 8));
+	}
+
+	/**
+	 * @param i Index of the default scanner info.
+	 * @return Index of the default scanner info.
+	 */
+	public int getDefaultInfo(int i) {
+		return buffer.getInt(defaultTable + i * 8 + 4);
+	}
+
+	/**
+	 * @return Number of compile command digests.
+	 */
+	public int getDigestCount() {
+		return digestCount;
+	}
+
+	/**
+	 * @param i Index of the digest.
+	 * @return Location of the file compiled by the compile command.
+	 */
+	public synchronized String getDigestPath(int i) {
+		return getString(buffer.getInt(digestTable + i * 8));
+	}
+
+	/**
+	 * @param i Index of the digest.
+	 * @return Digest of the compile command.
+	 */
+	public synchronized String getDigest(int i) {
+		return getString(buffer.getInt(digestTable + i * 8 + 4));
+	}
+
+	/**
+	 * @return When the build of the last scanner discovery started, or 0
+	 *         if not known.
+	 */
+	public long getDiscoveryTime() {
+		return discoveryTime;
+	}
+
+	/**
+	 * Get a scanner info object, decoding it on first use.
+	 *
+	 * @param index Index of the scanner info.
+	 * @return The scanner info object. The same object is returned for
+	 *         the same index.
+	 * @throws IndexOutOfBoundsException if the file is corrupted.
+	 */
+	public synchronized ExtendedScannerInfo getInfo(int index) {
+		ExtendedScannerInfo info = infos[index];
+		if (info != null) {
+			return info;
+		}
+
+		int pos = buffer.getInt(headerSize + (stringCount + index) * 4);
+
+		int count = buffer.getInt(pos);
+		pos += 4;
+		Map<String, String> symbols = new HashMap<>(count * 4 / 3 + 1);
+		for (int i = 0; i < count; i++, pos += 8) {
+			symbols.put(getString(buffer.getInt(pos)),
+					getString(buffer.getInt(pos + 4)));
+		}
+
+		String[][] arrays = new String[4][];
+		for (int a = 0; a < arrays.length; a++) {
+			count = buffer.getInt(pos);
+			pos += 4;
+			arrays[a] = new String[count];
+			for (int i = 0; i < count; i++, pos += 4) {
+				arrays[a][i] = getString(buffer.getInt(pos));
+			}
+		}
+
+		info = new ExtendedScannerInfo(symbols, arrays[0], arrays[1],
+				arrays[2], arrays[3]);
+		infos[index] = info;
+		return info;
+	}
+
+	private String getString(int index) {
+		String s = strings[index];
+		if (s == null) {
+			int pos = buffer.getInt(headerSize + index * 4);
+			int len = buffer.getInt(pos);
+			byte[] bytes = new byte[len];
+			ByteBuffer dup = buffer.duplicate();
+			dup.position(pos + 4);
+			dup.get(bytes);
+			s = new String(bytes, StandardCharsets.UTF_8);
+			strings[index] = s;
+		}
+		return s;
+	}
+
+	/**
+	 * Builds the string table and info table for writing.
+	 */
+	private static class Tables {
+
+		private final Map<String, Integer> stringIds = new HashMap<>();
+
+		private final List<byte[]> strings = new ArrayList<>();
+
+		private final Map<ExtendedScannerInfo, Integer> infoIds =
+				new IdentityHashMap<>();
+
+		private final List<int[]> infos = new ArrayList<>();
+
+		int string(String s) {
+			if (s == null) {
+				s = ""; //$NON-NLS-1$
+			}
+
+			Integer id = stringIds.get(s);
+			if (id == null) {
+				id = strings.size();
+				stringIds.put(s, id);
+				strings.add(s.getBytes(StandardCharsets.UTF_8));
+			}
+			return id;
+		}
+
+		int info(ExtendedScannerInfo info) {
+			Integer id = infoIds.get(info);
+			if (id == null) {
+				id = infos.size();
+				infoIds.put(info, id);
+				infos.add(encode(info));
+			}
+			return id;
+		}
+
+		private int[] encode(ExtendedScannerInfo info) {
+			Map<String, String> symbols = info.getDefinedSymbols();
+			String[][] arrays = { info.getIncludePaths(), info.getMacroFiles(),
+					info.getIncludeFiles(), info.getLocalIncludePath() };
+
+			int size = 1 + ((symbols == null) ? 0 : symbols.size() * 2);
+			for (String[] array : arrays) {
+				size += 1 + ((array == null) ? 0 : array.length);
+			}
+
+			int[] record = new int[size];
+			int pos = 0;
+			if (symbols == null) {
+				record[pos++] = 0;
+			} else {
+				record[pos++] = symbols.size();
+				for (Map.Entry<String, String> symbol : symbols.entrySet()) {
+					record[pos++] = string(symbol.getKey());
+					record[pos++] = string(symbol.getValue());
+				}
+			}
+			for (String[] array : arrays) {
+				if (array == null) {
+					record[pos++] = 0;
+				} else {
+					record[pos++] = array.length;
+					for (String s : array) {
+						record[pos++] = string(s);
+					}
+				}
+			}
+			return record;
+		}
+
+	}
+
+	/**
+	 * Write a scanner info cache file.
+	 *
+	 * The file is written next to the destination and then moved into
+	 * place, so readers never see a partially written file.
+	 *
+	 * @param file Path to the file.
+	 * @param fileInfos Scanner info objects keyed by file location.
+	 * @param defaultInfos Default scanner info objects keyed by extension.
+	 * @param digests Compile command digests keyed by file location.
+	 * @param discoveryTime When the build of the last scanner discovery
+	 *            started.
+	 * @throws IOException
+	 */
+	public static void write(Path file,
+			Map<String, ExtendedScannerInfo> fileInfos,
+			Map<String, ExtendedScannerInfo> defaultInfos,
+			Map<String, String> digests, long discoveryTime)
+			throws IOException {
+		Tables tables = new Tables();
+
+		int[] fileEntries = new int[fileInfos.size() * 2];
+		int i = 0;
+		for (Map.Entry<String, ExtendedScannerInfo> e : fileInfos
+				.entrySet()) {
+			fileEntries[i++] = tables.string(e.getKey());
+			fileEntries[i++] = tables.info(e.getValue());
+		}
+
+		int[] defaultEntries = new int[defaultInfos.size() * 2];
+		i = 0;
+		for (Map.Entry<String, ExtendedScannerInfo> e : defaultInfos
+				.entrySet()) {
+			defaultEntries[i++] = tables.string(e.getKey());
+			defaultEntries[i++] = tables.info(e.getValue());
+		}
+
+		int[] digestEntries = new int[digests.size() * 2];
+		i = 0;
+		for (Map.Entry<String, String> e : digests.entrySet()) {
+			digestEntries[i++] = tables.string(e.getKey());
+			digestEntries[i++] = tables.string(e.getValue());
+		}
+
+		int stringCount = tables.strings.size();
+		int infoCount = tables.infos.size();
+
+		Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp"); //$NON-NLS-1$
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(stringCount);
+			out.writeInt(infoCount);
+			out.writeInt(fileInfos.size());
+			out.writeInt(defaultInfos.size());
+			out.writeInt(digests.size());
+			out.writeLong(discoveryTime);
+
+			/* Offsets of strings and info records */
+			int pos = HEADER_SIZE + (stringCount + infoCount) * 4
+					+ (fileEntries.length + defaultEntries.length
+							+ digestEntries.length) * 4;
+			for (byte[] s : tables.strings) {
+				out.writeInt(pos);
+				pos += 4 + s.length;
+			}
+			for (int[] record : tables.infos) {
+				out.writeInt(pos);
+				pos += record.length * 4;
+			}
+
+			for (int[] entries : new int[][] { fileEntries, defaultEntries,
+					digestEntries }) {
+				for (int entry : entries) {
+					out.writeInt(entry);
+				}
+			}
+
+			for (byte[] s : tables.strings) {
+				out.writeInt(s.length);
+				out.write(s);
+			}
+			for (int[] record : tables.infos) {
+				for (int value : record) {
+					out.writeInt(value);
+				}
+			}
+		}
+
+		Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.core.internal.build;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.cdt.core.parser.ExtendedScannerInfo;
+import org.eclipse.cdt.core.parser.IExtendedScannerInfo;
+
+/**
+ * Canonicalizing pool of scanner info objects.
+ *
+ * Nearly all files of a Zephyr application share the same scanner info,
+ * with thousands of macros and many include paths. Identical scanner info
+ * objects are replaced by a single immutable instance. The pool only holds
+ * them weakly, so instances no longer used by any cache are collected.
+ */
+public final class ScannerInfoInterner {
+
+	/* Rough object sizes for the heap usage estimate, in bytes */
+	private static final int OBJECT_SIZE = 16;
+
+	private static final int REFERENCE_SIZE = 8;
+
+	private static final int STRING_SIZE = 40;
+
+	private static final int MAP_ENTRY_SIZE = 48;
+
+	private static final ScannerInfoInterner INSTANCE =
+			new ScannerInfoInterner();
+
+	private final Map<Interned, WeakReference<Interned>> pool;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Immutable scanner info with equality based on its content.
+	 */
+	public static final class Interned extends ExtendedScannerInfo {
+
+		private final transient int hashCode;
+
+		private Interned(IExtendedScannerInfo info) {
+			super(copySymbols(info.getDefinedSymbols()),
+					copy(info.getIncludePaths()), copy(info.getMacroFiles()),
+					copy(info.getIncludeFiles()),
+					copy(info.getLocalIncludePath()));
+			this.hashCode = Objects.hash(getDefinedSymbols(),
+					Arrays.hashCode(getIncludePaths()),
+					Arrays.hashCode(getMacroFiles()),
+					Arrays.hashCode(getIncludeFiles()),
+					Arrays.hashCode(getLocalIncludePath()));
+		}
+
+		private static Map<String, String> copySymbols(
+				Map<String, String> symbols) {
+			if (symbols == null) {
+				return Collections.emptyMap();
+			}
+			return Collections.unmodifiableMap(new HashMap<>(symbols));
+		}
+
+		private static String[] copy(String[] array) {
+			return (array == null) ? new String[0] : array.clone();
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Interned)) {
+				return false;
+			}
+
+			Interned other = (Interned) obj;
+			return (hashCode == other.hashCode)
+					&& Arrays.equals(getIncludePaths(),
+							other.getIncludePaths())
+					&& Arrays.equals(getMacroFiles(), other.getMacroFiles())
+					&& Arrays.equals(getIncludeFiles(),
+							other.getIncludeFiles())
+					&& Arrays.equals(getLocalIncludePath(),
+							other.getLocalIncludePath())
+					&& getDefinedSymbols().equals(other.getDefinedSymbols());
+		}
+
+	}
+
+	private ScannerInfoInterner() {
+		this.pool = new WeakHashMap<>();
+	}
+
+	/**
+	 * @return The shared pool.
+	 */
+	public static ScannerInfoInterner getDefault() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Get the canonical instance of a scanner info object.
+	 *
+	 * @param info The scanner info, may be null.
+	 * @return The canonical instance equal to {@code info}, or null if
+	 *         {@code info} is null.
+	 */
+	public ExtendedScannerInfo intern(IExtendedScannerInfo info) {
+		if (info == null) {
+			return null;
+		}
+
+		Interned candidate;
+		if (info instanceof Interned) {
+			candidate = (Interned) info;
+		} else {
+			candidate = new Interned(info);
+		}
+
+		synchronized (pool) {
+			WeakReference<Interned> ref = pool.get(candidate);
+			Interned canonical = (ref != null) ? ref.get() : null;
+			if (canonical != null) {
+				hits.incrementAndGet();
+				return canonical;
+			}
+
+			pool.put(candidate, new WeakReference<>(candidate));
+		}
+
+		misses.incrementAndGet();
+		return candidate;
+	}
+
+	/**
+	 * @return Number of distinct scanner info objects in the pool.
+	 */
+	public int size() {
+		synchronized (pool) {
+			return pool.size();
+		}
+	}
+
+	/**
+	 * @return Number of requests returning an existing instance.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return Number of requests adding a new instance.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Roughly estimate the heap used by a scanner info object.
+	 *
+	 * @param info The scanner info.
+	 * @return Estimated size in bytes.
+	 */
+	public static long estimateSize(IExtendedScannerInfo info) {
+		if (info == null) {
+			return 0;
+		}
+
+		long size = OBJECT_SIZE + 5 * REFERENCE_SIZE;
+
+		Map<String, String> symbols = info.getDefinedSymbols();
+		if (symbols != null) {
+			size += OBJECT_SIZE;
+			for (Map.Entry<String, String> symbol : symbols.entrySet()) {
+				size += MAP_ENTRY_SIZE + estimateSize(symbol.getKey())
+						+ estimateSize(symbol.getValue());
+			}
+		}
+
+		size += estimateSize(info.getIncludePaths());
+		size += estimateSize(info.getMacroFiles());
+		size += estimateSize(info.getIncludeFiles());
+		size += estimateSize(info.getLocalIncludePath());
+
+		return size;
+	}
+
+	private static long estimateSize(String[] array) {
+		if (array == null) {
+			return 0;
+		}
+
+		long size = OBJECT_SIZE + array.length * REFERENCE_SIZE;
+		for (String s : array) {
+			size += estimateSize(s);
+		}
+		return size;
+	}
+
+	private static long estimateSize(String s) {
+		return (s == null) ? 0 : STRING_SIZE + s.length();
+	}
+
+}
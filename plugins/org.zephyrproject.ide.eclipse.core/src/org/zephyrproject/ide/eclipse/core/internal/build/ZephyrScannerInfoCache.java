@@ -8,11 +8,15 @@ package org.zephyrproject.ide.eclipse.core.internal.build;
 
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.eclipse.cdt.core.parser.ExtendedScannerInfo;
 import org.eclipse.cdt.core.parser.IExtendedScannerInfo;
@@ -21,26 +25,186 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IPath;
 import org.zephyrproject.ide.eclipse.core.ZephyrPlugin;
+import org.zephyrproject.ide.eclipse.core.internal.IZephyrEventRecorder.DataSpan;
+import org.zephyrproject.ide.eclipse.core.internal.ZephyrEvents;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 /**
  * Scanner Information Caching class
+ *
+ * File locations are interned into small integer IDs by an open addressing
+ * table, and the IDs index into an array of scanner info objects. Lookups
+ * do not take any locks, as they are done constantly by the indexer and the
+ * editor. Updates are serialized. Once many files have been removed, their
+ * IDs are released when the cache is written, by rebuilding the table.
  */
 public class ZephyrScannerInfoCache {
 
 	private static final String SCANNER_INFO_CACHE = "scannerInfoCache";
 
-	private Map<Integer, ExtendedScannerInfo> cacheMap;
+	/* Cache file from older versions, keyed by hash of location */
+	private static final String LEGACY_CACHE_FILE = "cacheMap"; //$NON-NLS-1$
+
+	private static final String CACHE_FILE = "scannerInfo.bin"; //$NON-NLS-1$
+
+	/* JSON cache files from older versions, migrated on read */
+	private static final String JSON_CACHE_FILE = "scannerInfoMap"; //$NON-NLS-1$
+
+	private static final String JSON_DEFAULT_CACHE_FILE = "defaultCacheMap"; //$NON-NLS-1$
+
+	private static final String JSON_DIGESTS_FILE = "entryDigests"; //$NON-NLS-1$
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	/*
+	 * Interned file locations and their scanner info, replaced as a whole
+	 * when rebuilt so that readers never mix IDs of different tables.
+	 */
+	private volatile PathTable table;
+
+	/* Rebuild the table once this fraction of the IDs has no scanner info */
+	private static final int RELEASE_RATIO = 4;
+
+	/* Cache file whose scanner info objects are not all decoded yet */
+	private volatile ScannerInfoCacheFile loadedFile;
+
+	/*
+	 * Index of the scanner info in loadedFile for each path ID, or -1 if
+	 * already decoded or replaced. Guarded by this.
+	 */
+	private int[] loadedRefs;
+
+	private final Map<String, ExtendedScannerInfo> defaultCacheMap;
+
+	/* Digests of compile command entries from the last discovery */
+	private Map<String, String> entryDigests;
 
-	private Map<String, ExtendedScannerInfo> defaultCacheMap;
+	/* When the build of the last discovery started, guarded by this */
+	private long discoveryTime;
 
 	private IBuildConfiguration config;
 
+	private final ScannerInfoInterner interner =
+			ScannerInfoInterner.getDefault();
+
+	/**
+	 * Open addressing table of interned file locations, with the scanner
+	 * info of each path ID.
+	 *
+	 * Writers hold the lock of the cache. Readers do not lock: a path is
+	 * stored before its slot is published, and grown arrays are published
+	 * once filled, so a reader finds either nothing or a complete entry.
+	 */
+	private static final class PathTable {
+
+		/* Interned file locations, indexed by path ID */
+		private volatile String[] paths;
+
+		/* Scanner info of files, indexed by path ID */
+		private volatile AtomicReferenceArray<ExtendedScannerInfo> infos;
+
+		/* ID + 1 of the path in each slot, 0 for free slots */
+		private volatile AtomicIntegerArray slots;
+
+		/* Number of path IDs assigned, guarded by the cache */
+		private int size;
+
+		/**
+		 * @param capacity Initial number of paths, a power of two.
+		 */
+		private PathTable(int capacity) {
+			this.paths = new String[capacity];
+			this.infos = new AtomicReferenceArray<>(capacity);
+			this.slots = new AtomicIntegerArray(capacity * 2);
+			this.size = 0;
+		}
+
+		private static int slot(String path, int mask) {
+			int h = path.hashCode();
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		/**
+		 * @param path Location of the file.
+		 * @return The path ID, or -1 if the path is not interned.
+		 */
+		private int get(String path) {
+			AtomicIntegerArray array = slots;
+			int mask = array.length() - 1;
+			for (int i = slot(path, mask);; i = (i + 1) & mask) {
+				int id = array.get(i) - 1;
+				if ((id < 0) || paths[id].equals(path)) {
+					return id;
+				}
+			}
+		}
+
+		/**
+		 * Get the ID of a path, assigning a new one if needed.
+		 *
+		 * Must be called with the lock of the cache held.
+		 *
+		 * @param path Location of the file.
+		 * @return The path ID.
+		 */
+		private int intern(String path) {
+			AtomicIntegerArray array = slots;
+			int mask = array.length() - 1;
+			int i = slot(path, mask);
+			for (;; i = (i + 1) & mask) {
+				int id = array.get(i) - 1;
+				if (id < 0) {
+					break;
+				}
+				if (paths[id].equals(path)) {
+					return id;
+				}
+			}
+
+			/* Make room before the new ID becomes visible to readers */
+			int id = size;
+			if (id == paths.length) {
+				AtomicReferenceArray<ExtendedScannerInfo> newInfos =
+						new AtomicReferenceArray<>(id * 2);
+				for (int j = 0; j < id; j++) {
+					newInfos.set(j, infos.get(j));
+				}
+				infos = newInfos;
+				paths = Arrays.copyOf(paths, id * 2);
+			}
+			paths[id] = path;
+			size++;
+
+			if (size * 2 > array.length()) {
+				rehash();
+			} else {
+				array.set(i, id + 1);
+			}
+			return id;
+		}
+
+		private void rehash() {
+			AtomicIntegerArray array =
+					new AtomicIntegerArray(slots.length() * 2);
+			int mask = array.length() - 1;
+			for (int id = 0; id < size; id++) {
+				int i = slot(paths[id], mask);
+				while (array.get(i) != 0) {
+					i = (i + 1) & mask;
+				}
+				array.set(i, id + 1);
+			}
+			slots = array;
+		}
+
+	}
+
 	public ZephyrScannerInfoCache(IBuildConfiguration config) {
-		this.cacheMap = new TreeMap<>();
-		this.defaultCacheMap = new TreeMap<>();
+		this.table = new PathTable(INITIAL_CAPACITY);
+		this.defaultCacheMap = new ConcurrentHashMap<>();
+		this.entryDigests = new TreeMap<>();
 		this.config = config;
 
 		getScannerInfoCachePath().toFile().mkdirs();
@@ -59,16 +223,122 @@ public class ZephyrScannerInfoCache {
 	 * Read the cache files from storage.
 	 */
 	private void readCache() {
-		File cacheFile = getScannerInfoCachePath().append("cacheMap").toFile(); //$NON-NLS-1$
+		/*
+		 * The legacy cache cannot be converted as only hashes of the
+		 * locations are stored, so let scanner discovery refill the cache.
+		 */
+		File cacheFile =
+				getScannerInfoCachePath().append(LEGACY_CACHE_FILE).toFile();
+		if (cacheFile.exists()) {
+			cacheFile.delete();
+		}
+
+		cacheFile = getScannerInfoCachePath().append(CACHE_FILE).toFile();
+		if (cacheFile.exists()) {
+			DataSpan span = ZephyrEvents.getRecorder().beginScannerInfoCache(
+					config.getProject().getName(), false);
+			try {
+				span.setBytes(cacheFile.length());
+				loadCacheFile(ScannerInfoCacheFile.open(cacheFile.toPath()));
+				return;
+			} catch (IOException | IndexOutOfBoundsException e) {
+				e.printStackTrace();
+				cacheFile.delete();
+			} finally {
+				span.end();
+			}
+		}
+
+		if (readJsonCache()) {
+			/* Migrate to the binary format */
+			writeCache();
+			getScannerInfoCachePath().append(JSON_CACHE_FILE).toFile()
+					.delete();
+			getScannerInfoCachePath().append(JSON_DEFAULT_CACHE_FILE).toFile()
+					.delete();
+			getScannerInfoCachePath().append(JSON_DIGESTS_FILE).toFile()
+					.delete();
+		}
+	}
+
+	/**
+	 * Load the file locations, default scanner info objects and digests
+	 * from a cache file. Scanner info objects of files are decoded when
+	 * first used.
+	 */
+	private synchronized void loadCacheFile(ScannerInfoCacheFile file) {
+		int count = file.getFileCount();
+		int[] refs = new int[count];
+		for (int i = 0; i < count; i++) {
+			int id = internPath(file.getFilePath(i));
+			refs[id] = file.getFileInfo(i);
+		}
+
+		count = file.getDefaultCount();
+		for (int i = 0; i < count; i++) {
+			defaultCacheMap.put(file.getDefaultExtension(i),
+					interner.intern(file.getInfo(file.getDefaultInfo(i))));
+		}
+
+		count = file.getDigestCount();
+		for (int i = 0; i < count; i++) {
+			entryDigests.put(file.getDigestPath(i), file.getDigest(i));
+		}
+		discoveryTime = file.getDiscoveryTime();
+
+		loadedRefs = refs;
+		loadedFile = file;
+	}
+
+	/**
+	 * Read the JSON cache files from older versions.
+	 *
+	 * @return True if any JSON cache file has been found.
+	 */
+	private boolean readJsonCache() {
+		boolean found = false;
+		File cacheFile =
+				getScannerInfoCachePath().append(JSON_CACHE_FILE).toFile();
+
+		if (cacheFile.exists()) {
+			found = true;
+			try (FileReader reader = new FileReader(cacheFile)) {
+				Gson gson = new Gson();
+				Type mapType =
+						new TypeToken<Map<String, ExtendedScannerInfo>>() {
+						}.getType();
+				Map<String, ExtendedScannerInfo> map =
+						gson.fromJson(reader, mapType);
+				if (map != null) {
+					for (Map.Entry<String, ExtendedScannerInfo> entry : map
+							.entrySet()) {
+						setScannerInfo(entry.getKey(),
+								interner.intern(entry.getValue()));
+					}
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+
+		cacheFile = getScannerInfoCachePath().append(JSON_DEFAULT_CACHE_FILE)
+				.toFile();
 
 		if (cacheFile.exists()) {
+			found = true;
 			try (FileReader reader = new FileReader(cacheFile)) {
 				Gson gson = new Gson();
-				synchronized (this) {
-					Type mapType =
-							new TypeToken<Map<Integer, ExtendedScannerInfo>>() {
-							}.getType();
-					cacheMap = gson.fromJson(reader, mapType);
+				Type mapType =
+						new TypeToken<Map<String, ExtendedScannerInfo>>() {
+						}.getType();
+				Map<String, ExtendedScannerInfo> map =
+						gson.fromJson(reader, mapType);
+				if (map != null) {
+					for (Map.Entry<String, ExtendedScannerInfo> entry : map
+							.entrySet()) {
+						defaultCacheMap.put(entry.getKey(),
+								interner.intern(entry.getValue()));
+					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
@@ -76,49 +346,175 @@ public class ZephyrScannerInfoCache {
 		}
 
 		cacheFile =
-				getScannerInfoCachePath().append("defaultCacheMap").toFile(); //$NON-NLS-1$
+				getScannerInfoCachePath().append(JSON_DIGESTS_FILE).toFile();
 
 		if (cacheFile.exists()) {
+			found = true;
 			try (FileReader reader = new FileReader(cacheFile)) {
 				Gson gson = new Gson();
-				synchronized (this) {
-					Type mapType =
-							new TypeToken<Map<String, ExtendedScannerInfo>>() {
-							}.getType();
-					defaultCacheMap = gson.fromJson(reader, mapType);
+				Type mapType = new TypeToken<Map<String, String>>() {
+				}.getType();
+				Map<String, String> map = gson.fromJson(reader, mapType);
+				if (map != null) {
+					synchronized (this) {
+						entryDigests.putAll(map);
+					}
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
 		}
+
+		return found;
 	}
 
 	/**
 	 * Write the cached info object into storage.
 	 */
 	public void writeCache() {
-		File cacheFile = getScannerInfoCachePath().append("cacheMap").toFile(); //$NON-NLS-1$
+		Map<String, ExtendedScannerInfo> map = new TreeMap<>();
+		Map<String, String> digests;
+		long time;
+		synchronized (this) {
+			PathTable current = table;
+			for (int id = 0; id < current.size; id++) {
+				ExtendedScannerInfo info = current.infos.get(id);
+				if (info == null) {
+					info = decodeScannerInfo(current, id);
+				}
+				if (info != null) {
+					map.put(current.paths[id], info);
+				}
+			}
+			digests = new TreeMap<>(entryDigests);
+			time = discoveryTime;
+
+			/* Everything has been decoded, so the loaded file is not needed */
+			loadedFile = null;
+			loadedRefs = null;
 
-		try (FileWriter writer = new FileWriter(cacheFile)) {
-			Gson gson = new Gson();
-			synchronized (this) {
-				gson.toJson(cacheMap, writer);
+			/* Release the IDs of removed files, once there are many */
+			if ((current.size - map.size()) * RELEASE_RATIO > current.size) {
+				rebuildTable(map);
 			}
+		}
+
+		File cacheFile = getScannerInfoCachePath().append(CACHE_FILE).toFile();
+		DataSpan span = ZephyrEvents.getRecorder()
+				.beginScannerInfoCache(config.getProject().getName(), true);
+		try {
+			ScannerInfoCacheFile.write(cacheFile.toPath(), map,
+					new TreeMap<>(defaultCacheMap), digests, time);
+			span.setBytes(cacheFile.length());
 		} catch (IOException ioe) {
 			ioe.printStackTrace();
+		} finally {
+			span.end();
 		}
+	}
 
-		cacheFile =
-				getScannerInfoCachePath().append("defaultCacheMap").toFile(); //$NON-NLS-1$
+	/**
+	 * Replace the table of IDs by one holding only some file locations.
+	 *
+	 * Must be called with the lock held, and with no loaded cache file.
+	 *
+	 * @param map Scanner info objects of the files to keep.
+	 */
+	private void rebuildTable(Map<String, ExtendedScannerInfo> map) {
+		int capacity = INITIAL_CAPACITY;
+		while (capacity < map.size()) {
+			capacity *= 2;
+		}
+
+		PathTable newTable = new PathTable(capacity);
+		for (Map.Entry<String, ExtendedScannerInfo> entry : map.entrySet()) {
+			newTable.infos.set(newTable.intern(entry.getKey()),
+					entry.getValue());
+		}
+		table = newTable;
+	}
+
+	/**
+	 * Decode the scanner info object of a path ID from the loaded cache
+	 * file, if it has not been decoded or replaced yet.
+	 *
+	 * @param current Table of the path ID.
+	 * @param id Path ID.
+	 * @return The scanner info object, or null if none.
+	 */
+	private synchronized ExtendedScannerInfo decodeScannerInfo(
+			PathTable current, int id) {
+		AtomicReferenceArray<ExtendedScannerInfo> infos = current.infos;
+		ExtendedScannerInfo info = infos.get(id);
+		if ((info != null) || (loadedFile == null)
+				|| (id >= loadedRefs.length) || (loadedRefs[id] < 0)) {
+			return info;
+		}
+
+		try {
+			info = interner.intern(loadedFile.getInfo(loadedRefs[id]));
+		} catch (IndexOutOfBoundsException e) {
+			/* Corrupted cache file, let scanner discovery fill it again */
+			e.printStackTrace();
+			info = null;
+		}
+		loadedRefs[id] = -1;
+		infos.set(id, info);
+		return info;
+	}
+
+	/**
+	 * Get the ID of a file location, assigning a new one if needed.
+	 *
+	 * Must be called with the lock held.
+	 *
+	 * @param location Location of the file, in OS specific format.
+	 * @return The path ID.
+	 */
+	private int internPath(String location) {
+		return table.intern(location);
+	}
+
+	/**
+	 * Retrieve a scanner info object associated with a file location.
+	 *
+	 * @param location Location of the file, in OS specific format.
+	 * @return IExtendedScannerInfo object if file is cached, null otherwise.
+	 */
+	private IExtendedScannerInfo getScannerInfo(String location) {
+		PathTable current = table;
+		int id = current.get(location);
+		if (id < 0) {
+			return null;
+		}
+
+		ExtendedScannerInfo info = current.infos.get(id);
+		if ((info == null) && (loadedFile != null)) {
+			info = decodeScannerInfo(current, id);
+		}
+		return info;
+	}
 
-		try (FileWriter writer = new FileWriter(cacheFile)) {
-			Gson gson = new Gson();
-			synchronized (this) {
-				gson.toJson(defaultCacheMap, writer);
+	/**
+	 * Put a scanner info object associated with a file location into cache.
+	 *
+	 * @param location Location of the file, in OS specific format.
+	 * @param info Scanner info object, or null to remove it.
+	 */
+	private synchronized void setScannerInfo(String location,
+			ExtendedScannerInfo info) {
+		int id = table.get(location);
+		if (id < 0) {
+			if (info == null) {
+				return;
 			}
-		} catch (IOException ioe) {
-			ioe.printStackTrace();
+			id = internPath(location);
+		}
+
+		if ((loadedRefs != null) && (id < loadedRefs.length)) {
+			loadedRefs[id] = -1;
 		}
+		table.infos.set(id, info);
 	}
 
 	/**
@@ -129,13 +525,10 @@ public class ZephyrScannerInfoCache {
 	 */
 	public IExtendedScannerInfo getScannerInfo(IResource resource) {
 		if ((resource != null) && (resource instanceof IFile)) {
-			Integer hash = resource.getLocation().toOSString().hashCode();
-			IExtendedScannerInfo info;
-			synchronized (this) {
-				info = cacheMap.get(hash);
+			IPath location = resource.getLocation();
+			if (location != null) {
+				return getScannerInfo(location.toOSString());
 			}
-
-			return info;
 		}
 		return null;
 	}
@@ -147,16 +540,105 @@ public class ZephyrScannerInfoCache {
 	 * @param info Scanner info object associated with the file.
 	 */
 	public void setScannerInfo(IResource resource, IExtendedScannerInfo info) {
-		if ((resource != null) && (info != null) && (resource instanceof IFile)
-				&& (info instanceof ExtendedScannerInfo)) {
-			Integer hash = resource.getLocation().toOSString().hashCode();
-			ExtendedScannerInfo esi = (ExtendedScannerInfo) info;
-			synchronized (this) {
-				cacheMap.put(hash, esi);
+		if ((resource != null) && (info != null)
+				&& (resource instanceof IFile)) {
+			IPath location = resource.getLocation();
+			if (location != null) {
+				setScannerInfo(location.toOSString(), interner.intern(info));
 			}
 		}
 	}
 
+	/**
+	 * Check if there is a scanner info object associated with a file.
+	 *
+	 * @param location Location of the file, in OS specific format.
+	 * @return True if file is cached, false otherwise.
+	 */
+	public boolean hasScannerInfo(String location) {
+		return getScannerInfo(location) != null;
+	}
+
+	/**
+	 * Remove the scanner info object associated with a file from cache.
+	 *
+	 * @param location Location of the file, in OS specific format.
+	 */
+	public void removeScannerInfo(String location) {
+		setScannerInfo(location, null);
+	}
+
+	/**
+	 * Estimate the heap used by the scanner info objects of this cache,
+	 * with and without them being shared.
+	 *
+	 * @return Human readable report.
+	 */
+	public String getHeapUsageReport() {
+		Map<ExtendedScannerInfo, Long> sizes = new IdentityHashMap<>();
+		long shared = 0;
+		long unshared = 0;
+		int files = 0;
+
+		AtomicReferenceArray<ExtendedScannerInfo> array = table.infos;
+		for (int id = 0; id < array.length(); id++) {
+			ExtendedScannerInfo info = array.get(id);
+			if (info == null) {
+				continue;
+			}
+
+			Long size = sizes.get(info);
+			if (size == null) {
+				size = ScannerInfoInterner.estimateSize(info);
+				sizes.put(info, size);
+				shared += size;
+			}
+			unshared += size;
+			files++;
+		}
+
+		return String.format(
+				"Scanner info of %d files shares %d objects: ~%d KiB instead of ~%d KiB (%d distinct objects in workspace)", //$NON-NLS-1$
+				files, sizes.size(), shared / 1024, unshared / 1024,
+				interner.size());
+	}
+
+	/**
+	 * @return Copy of the digests of compile command entries, keyed by the
+	 *         location of the compiled file.
+	 */
+	public Map<String, String> getEntryDigests() {
+		synchronized (this) {
+			return new TreeMap<>(entryDigests);
+		}
+	}
+
+	/**
+	 * Replace the digests of compile command entries.
+	 *
+	 * @param digests Digests keyed by the location of the compiled file.
+	 */
+	public void setEntryDigests(Map<String, String> digests) {
+		synchronized (this) {
+			entryDigests = new TreeMap<>(digests);
+		}
+	}
+
+	/**
+	 * @return When the build of the last scanner discovery started, or 0
+	 *         if not known.
+	 */
+	public synchronized long getDiscoveryTime() {
+		return discoveryTime;
+	}
+
+	/**
+	 * @param time When the build of the scanner discovery started.
+	 */
+	public synchronized void setDiscoveryTime(long time) {
+		discoveryTime = time;
+	}
+
 	/**
 	 * Retrieve a generic scanner info object using the file extension of
 	 * the resource.
@@ -171,16 +653,12 @@ public class ZephyrScannerInfoCache {
 
 			if (ext != null) {
 				/* If there is an extension... */
-				synchronized (this) {
-					info = defaultCacheMap.get(ext.toLowerCase());
-				}
+				info = defaultCacheMap.get(ext.toLowerCase());
 			}
 
 			if (info == null) {
 				/* The ".c" scanner is the default one. */
-				synchronized (this) {
-					info = defaultCacheMap.get("c"); //$NON-NLS-1$
-				}
+				info = defaultCacheMap.get("c"); //$NON-NLS-1$
 			}
 
 			return info;
@@ -197,16 +675,14 @@ public class ZephyrScannerInfoCache {
 	 */
 	public void setDefaultScannerInfo(IResource resource,
 			IExtendedScannerInfo info) {
-		if ((resource != null) && (info != null) && (resource instanceof IFile)
-				&& (info instanceof ExtendedScannerInfo)) {
+		if ((resource != null) && (info != null)
+				&& (resource instanceof IFile)) {
 
 			String ext = resource.getLocation().getFileExtension();
-			ExtendedScannerInfo esi = (ExtendedScannerInfo) info;
+			ExtendedScannerInfo esi = interner.intern(info);
 			if (ext != null) {
 				/* If there is an extension... */
-				synchronized (this) {
-					defaultCacheMap.put(ext.toLowerCase(), esi);
-				}
+				defaultCacheMap.put(ext.toLowerCase(), esi);
 			}
 		}
 	}
@@ -37,6 +37,29 @@ public final class ZephyrProjectPreferences {
 
 	public static final String SOURCE_DIR_DEFAULT = "src"; //$NON-NLS-1$
 
+	public static final String BUILD_JOBS = "BUILD_JOBS"; //$NON-NLS-1$
+
+	public static final String BUILD_LOAD_LIMIT = "BUILD_LOAD_LIMIT"; //$NON-NLS-1$
+
+	/* Compile the objects affected by saved files in the background */
+	public static final String COMPILE_ON_SAVE = "COMPILE_ON_SAVE"; //$NON-NLS-1$
+
+	public static final String SCANNER_DISCOVERY_JOBS =
+			"SCANNER_DISCOVERY_JOBS"; //$NON-NLS-1$
+
+	public static final String SCANNER_DISCOVERY_MODE =
+			"SCANNER_DISCOVERY_MODE"; //$NON-NLS-1$
+
+	/* Probe the compiler for every compiled file after build */
+	public static final String SCANNER_DISCOVERY_MODE_EAGER = "eager"; //$NON-NLS-1$
+
+	/* Probe the compiler for a file when its scanner info is first needed */
+	public static final String SCANNER_DISCOVERY_MODE_LAZY = "lazy"; //$NON-NLS-1$
+
+	/* Parse compile commands, only probe the compiler for its builtins */
+	public static final String SCANNER_DISCOVERY_MODE_SYNTHESIZE =
+			"synthesize"; //$NON-NLS-1$
+
 	/**
 	 * Get the project relative path of build directory.
 	 *
@@ -93,4 +116,99 @@ public final class ZephyrProjectPreferences {
 				ZephyrHelpers.getProjectPreferenceStore(project));
 	}
 
+	/**
+	 * Get the number of compiler probes to run concurrently during scanner
+	 * discovery.
+	 *
+	 * @param pStore Project ScopedPreferenceStore
+	 * @return Number of concurrent compiler probes, 0 for using the number
+	 *         of available processors
+	 */
+	public static int getScannerDiscoveryJobs(ScopedPreferenceStore pStore) {
+		String jobs = ZephyrHelpers.getProjectPreference(pStore,
+				ZephyrProjectPreferences.SCANNER_DISCOVERY_JOBS);
+
+		if (jobs == null) {
+			return 0;
+		}
+
+		try {
+			return Math.max(Integer.parseInt(jobs.trim()), 0);
+		} catch (NumberFormatException nfe) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Get the number of parallel build jobs.
+	 *
+	 * @param pStore Project ScopedPreferenceStore
+	 * @return Number of parallel jobs of make or ninja, 0 for using the
+	 *         number of available processors
+	 */
+	public static int getBuildJobs(ScopedPreferenceStore pStore) {
+		String jobs = ZephyrHelpers.getProjectPreference(pStore,
+				ZephyrProjectPreferences.BUILD_JOBS);
+
+		if (jobs == null) {
+			return 0;
+		}
+
+		try {
+			return Math.max(Integer.parseInt(jobs.trim()), 0);
+		} catch (NumberFormatException nfe) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Get the load average above which no new build jobs are started.
+	 *
+	 * @param pStore Project ScopedPreferenceStore
+	 * @return Load limit of make or ninja, 0 for no limit
+	 */
+	public static double getBuildLoadLimit(ScopedPreferenceStore pStore) {
+		String limit = ZephyrHelpers.getProjectPreference(pStore,
+				ZephyrProjectPreferences.BUILD_LOAD_LIMIT);
+
+		if (limit == null) {
+			return 0;
+		}
+
+		try {
+			return Math.max(Double.parseDouble(limit.trim()), 0);
+		} catch (NumberFormatException nfe) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Get how scanner discovery is done for compiled files.
+	 *
+	 * @param pStore Project ScopedPreferenceStore
+	 * @return One of the SCANNER_DISCOVERY_MODE_* values
+	 */
+	public static String getScannerDiscoveryMode(ScopedPreferenceStore pStore) {
+		String mode = ZephyrHelpers.getProjectPreference(pStore,
+				ZephyrProjectPreferences.SCANNER_DISCOVERY_MODE);
+
+		if (SCANNER_DISCOVERY_MODE_LAZY.equals(mode)
+				|| SCANNER_DISCOVERY_MODE_SYNTHESIZE.equals(mode)) {
+			return mode;
+		}
+
+		return SCANNER_DISCOVERY_MODE_EAGER;
+	}
+
+	/**
+	 * Check if saved files are compiled in the background.
+	 *
+	 * @param pStore Project ScopedPreferenceStore
+	 * @return True to compile the objects affected by saved files
+	 */
+	public static boolean isCompileOnSave(ScopedPreferenceStore pStore) {
+		return Boolean.parseBoolean(ZephyrHelpers.getProjectPreference(pStore,
+				ZephyrProjectPreferences.COMPILE_ON_SAVE));
+	}
+
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.ui.handlers;
+
+import java.util.Collections;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.Adapters;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.handlers.HandlerUtil;
+import org.zephyrproject.ide.eclipse.core.build.ZephyrCompileJob;
+
+/**
+ * Handler of the command compiling the selected file, or the file of the
+ * active editor, without building the whole project.
+ */
+public class CompileFileHandler extends AbstractHandler {
+
+	@Override
+	public Object execute(ExecutionEvent event) throws ExecutionException {
+		IFile file = null;
+
+		ISelection selection = HandlerUtil.getCurrentSelection(event);
+		if ((selection instanceof IStructuredSelection)
+				&& !selection.isEmpty()) {
+			file = Adapters.adapt(
+					((IStructuredSelection) selection).getFirstElement(),
+					IFile.class);
+		} else {
+			IEditorPart editor = HandlerUtil.getActiveEditor(event);
+			if (editor != null) {
+				file = Adapters.adapt(editor.getEditorInput(), IFile.class);
+
+				/* Compile what is in the editor */
+				if ((file != null) && editor.isDirty()) {
+					IWorkbenchPage page = editor.getSite().getPage();
+					if (!page.saveEditor(editor, false)) {
+						return null;
+					}
+				}
+			}
+		}
+
+		if (file != null) {
+			new ZephyrCompileJob(file.getProject(),
+					Collections.singleton(file), false).schedule();
+		}
+
+		return null;
+	}
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.ui.property;
+
+import java.io.IOException;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.jface.dialogs.IDialogConstants;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Text;
+import org.eclipse.ui.IWorkbenchPropertyPage;
+import org.eclipse.ui.dialogs.PropertyPage;
+import org.eclipse.ui.preferences.ScopedPreferenceStore;
+import org.zephyrproject.ide.eclipse.core.internal.ZephyrHelpers;
+import org.zephyrproject.ide.eclipse.core.preferences.ZephyrProjectPreferences;
+
+/**
+ * Property page for build related settings.
+ */
+public class ZephyrApplicationBuildPropertyPage extends PropertyPage
+		implements IWorkbenchPropertyPage {
+
+	private Text buildJobsText;
+
+	private Text buildLoadLimitText;
+
+	private Text discoveryJobsText;
+
+	private Combo discoveryModeCombo;
+
+	private Button compileOnSaveButton;
+
+	/* Items of discoveryModeCombo, in the same order as DISCOVERY_MODES */
+	private static final String[] DISCOVERY_MODE_NAMES = {
+		"Probe all compiled files after build",
+		"Probe files when first needed",
+		"Parse compile commands, only probe compiler builtins" };
+
+	private static final String[] DISCOVERY_MODES = {
+		ZephyrProjectPreferences.SCANNER_DISCOVERY_MODE_EAGER,
+		ZephyrProjectPreferences.SCANNER_DISCOVERY_MODE_LAZY,
+		ZephyrProjectPreferences.SCANNER_DISCOVERY_MODE_SYNTHESIZE };
+
+	private final ModifyListener modifyListener = new ModifyListener() {
+		@Override
+		public void modifyText(ModifyEvent e) {
+			updateApplyButton();
+		}
+	};
+
+	public ZephyrApplicationBuildPropertyPage() {
+	}
+
+	/**
+	 * Create a label and a text input field on the page.
+	 *
+	 * @param parent Parent composite with 2 columns.
+	 * @param label Text of the label.
+	 * @param value Initial value of the text field.
+	 * @return The text input field.
+	 */
+	private Text createTextField(Composite parent, String label,
+			String value) {
+		GridData gridData;
+
+		Label textLabel = new Label(parent, SWT.NONE);
+		gridData = new GridData();
+		textLabel.setLayoutData(gridData);
+		textLabel.setText(label);
+
+		Text text = new Text(parent, SWT.BORDER);
+		gridData = new GridData(GridData.FILL_HORIZONTAL);
+		gridData.widthHint = IDialogConstants.ENTRY_FIELD_WIDTH;
+		text.setLayoutData(gridData);
+		text.setFont(parent.getFont());
+		text.setText(value);
+		text.addModifyListener(modifyListener);
+
+		return text;
+	}
+
+	@Override
+	protected Control createContents(Composite parent) {
+		IProject project = getElement().getAdapter(IProject.class);
+		ScopedPreferenceStore pStore =
+				ZephyrHelpers.getProjectPreferenceStore(project);
+
+		noDefaultButton();
+
+		Composite composite = new Composite(parent, SWT.NONE);
+
+		/* Create a grid with 2 columns */
+		composite.setLayout(new GridLayout(2, false));
+		composite.setLayoutData(new GridData(GridData.FILL_BOTH));
+
+		/* Number of parallel make or ninja jobs, 0 means all processors */
+		buildJobsText = createTextField(composite,
+				"Parallel build jobs (0 = all processors):",
+				Integer.toString(
+						ZephyrProjectPreferences.getBuildJobs(pStore)));
+
+		/* Load average above which no new jobs are started, 0 means none */
+		double loadLimit = ZephyrProjectPreferences.getBuildLoadLimit(pStore);
+		buildLoadLimitText = createTextField(composite,
+				"Build load average limit (0 = no limit):",
+				(loadLimit > 0) ? Double.toString(loadLimit) : "0"); //$NON-NLS-1$
+
+		/* Number of concurrent compiler probes, 0 means all processors */
+		discoveryJobsText = createTextField(composite,
+				"Concurrent compiler probes (0 = all processors):",
+				Integer.toString(ZephyrProjectPreferences
+						.getScannerDiscoveryJobs(pStore)));
+
+		/* When the compiler probes are run */
+		Label discoveryModeLabel = new Label(composite, SWT.NONE);
+		discoveryModeLabel.setLayoutData(new GridData());
+		discoveryModeLabel.setText("Scanner discovery:");
+
+		discoveryModeCombo = new Combo(composite, SWT.BORDER | SWT.READ_ONLY);
+		discoveryModeCombo
+				.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+		discoveryModeCombo.setItems(DISCOVERY_MODE_NAMES);
+		String mode = ZephyrProjectPreferences.getScannerDiscoveryMode(pStore);
+		for (int i = 0; i < DISCOVERY_MODES.length; i++) {
+			if (DISCOVERY_MODES[i].equals(mode)) {
+				discoveryModeCombo.select(i);
+			}
+		}
+
+		/* Background compilation of the objects affected by saved files */
+		compileOnSaveButton = new Button(composite, SWT.CHECK);
+		GridData gridData = new GridData(GridData.FILL_HORIZONTAL);
+		gridData.horizontalSpan = 2;
+		compileOnSaveButton.setLayoutData(gridData);
+		compileOnSaveButton.setText("Compile changed files on save");
+		compileOnSaveButton.setSelection(
+				ZephyrProjectPreferences.isCompileOnSave(pStore));
+
+		return composite;
+	}
+
+	/**
+	 * Check if the text field contains a non-negative integer.
+	 *
+	 * @param text The text field.
+	 * @return True if valid, false otherwise.
+	 */
+	private static boolean isValidCount(Text text) {
+		try {
+			return Integer.parseInt(text.getText().trim()) >= 0;
+		} catch (NumberFormatException nfe) {
+			return false;
+		}
+	}
+
+	/**
+	 * Check if the text field contains a non-negative number.
+	 *
+	 * @param text The text field.
+	 * @return True if valid, false otherwise.
+	 */
+	private static boolean isValidLimit(Text text) {
+		try {
+			return Double.parseDouble(text.getText().trim()) >= 0;
+		} catch (NumberFormatException nfe) {
+			return false;
+		}
+	}
+
+	@Override
+	public boolean isValid() {
+		if (!isValidCount(buildJobsText)) {
+			setErrorMessage(
+					"Number of parallel build jobs must be a non-negative integer"); //$NON-NLS-1$
+			return false;
+		}
+
+		if (!isValidLimit(buildLoadLimitText)) {
+			setErrorMessage(
+					"Build load average limit must be a non-negative number"); //$NON-NLS-1$
+			return false;
+		}
+
+		if (!isValidCount(discoveryJobsText)) {
+			setErrorMessage(
+					"Number of concurrent compiler probes must be a non-negative integer"); //$NON-NLS-1$
+			return false;
+		}
+
+		setErrorMessage(null);
+		return true;
+	}
+
+	@Override
+	protected void performApply() {
+		IProject project = getElement().getAdapter(IProject.class);
+		ScopedPreferenceStore pStore =
+				ZephyrHelpers.getProjectPreferenceStore(project);
+
+		pStore.setValue(ZephyrProjectPreferences.BUILD_JOBS,
+				buildJobsText.getText().trim());
+		pStore.setValue(ZephyrProjectPreferences.BUILD_LOAD_LIMIT,
+				buildLoadLimitText.getText().trim());
+
+		pStore.setValue(ZephyrProjectPreferences.SCANNER_DISCOVERY_JOBS,
+				discoveryJobsText.getText().trim());
+
+		int modeIndex = discoveryModeCombo.getSelectionIndex();
+		if (modeIndex >= 0) {
+			pStore.setValue(ZephyrProjectPreferences.SCANNER_DISCOVERY_MODE,
+					DISCOVERY_MODES[modeIndex]);
+		}
+
+		pStore.setValue(ZephyrProjectPreferences.COMPILE_ON_SAVE,
+				Boolean.toString(compileOnSaveButton.getSelection()));
+
+		try {
+			pStore.save();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public boolean performOk() {
+		performApply();
+		return true;
+	}
+
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.ui.views;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.Adapters;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.TabFolder;
+import org.eclipse.swt.widgets.TabItem;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.part.ViewPart;
+import org.zephyrproject.ide.eclipse.core.internal.ZephyrHelpers;
+import org.zephyrproject.ide.eclipse.core.internal.build.BuildStatus;
+import org.zephyrproject.ide.eclipse.core.internal.build.BuildStatusManager;
+import org.zephyrproject.ide.eclipse.core.internal.build.NinjaBuildAnalysis;
+import org.zephyrproject.ide.eclipse.core.internal.build.NinjaBuildAnalyzer;
+
+/**
+ * View showing the critical path, parallelism and slowest steps of the last
+ * ninja build of a project.
+ */
+public class BuildAnalysisView extends ViewPart {
+
+	public static final String VIEW_ID =
+			"org.zephyrproject.ide.eclipse.ui.views.BuildAnalysisView"; //$NON-NLS-1$
+
+	/* Number of slowest edges and sources shown */
+	private static final int TOP_N = 50;
+
+	/* Width of the bar of the highest parallelism */
+	private static final int BAR_WIDTH = 40;
+
+	private static final String[] EDGE_COLUMN_NAMES = {
+		"Duration",
+		"Start",
+		"End",
+		"Rule",
+		"Output" };
+
+	private static final int[] EDGE_COLUMN_WIDTHS = {
+		80,
+		80,
+		80,
+		200,
+		400 };
+
+	private static final String[] SOURCE_COLUMN_NAMES = {
+		"Duration",
+		"Source",
+		"Output" };
+
+	private static final int[] SOURCE_COLUMN_WIDTHS = {
+		80,
+		400,
+		300 };
+
+	private static final String[] PARALLELISM_COLUMN_NAMES = {
+		"Time",
+		"Running",
+		"" };
+
+	private static final int[] PARALLELISM_COLUMN_WIDTHS = {
+		120,
+		80,
+		400 };
+
+	private Label summaryLabel;
+
+	private TabFolder folder;
+
+	private Table criticalPathTable;
+
+	private Table slowestEdgesTable;
+
+	private Table slowestSourcesTable;
+
+	private Table parallelismTable;
+
+	private Action exportAction;
+
+	/* Project of the analysis shown, null if none */
+	private volatile String projectName;
+
+	private NinjaBuildAnalysis analysis;
+
+	/* Analyze again when a build of the project shown is over */
+	private final BuildStatusManager.Listener listener =
+			new BuildStatusManager.Listener() {
+				@Override
+				public void statusChanged(BuildStatus status) {
+					String name = projectName;
+					if (status.isDone() && status.getProject().equals(name)) {
+						analyze(ResourcesPlugin.getWorkspace().getRoot()
+								.getProject(name));
+					}
+				}
+			};
+
+	public BuildAnalysisView() {
+	}
+
+	private static Table createTable(TabFolder folder, String title,
+			String[] names, int[] widths) {
+		Table table = new Table(folder, SWT.FULL_SELECTION | SWT.SINGLE);
+		table.setHeaderVisible(true);
+		table.setLinesVisible(true);
+
+		for (int i = 0; i < names.length; i++) {
+			TableColumn column = new TableColumn(table, SWT.LEFT);
+			column.setText(names[i]);
+			column.setWidth(widths[i]);
+		}
+
+		TabItem item = new TabItem(folder, SWT.NONE);
+		item.setText(title);
+		item.setControl(table);
+
+		return table;
+	}
+
+	@Override
+	public void createPartControl(Composite parent) {
+		Composite composite = new Composite(parent, SWT.NONE);
+		composite.setLayout(new GridLayout(1, false));
+
+		summaryLabel = new Label(composite, SWT.WRAP);
+		summaryLabel.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+		summaryLabel.setText(
+				"Select a project and press Analyze to analyze its last build.");
+
+		folder = new TabFolder(composite, SWT.TOP);
+		folder.setLayoutData(new GridData(GridData.FILL_BOTH));
+
+		criticalPathTable = createTable(folder, "Critical Path",
+				EDGE_COLUMN_NAMES, EDGE_COLUMN_WIDTHS);
+		slowestEdgesTable = createTable(folder, "Slowest Steps",
+				EDGE_COLUMN_NAMES, EDGE_COLUMN_WIDTHS);
+		slowestSourcesTable = createTable(folder, "Slowest Files",
+				SOURCE_COLUMN_NAMES, SOURCE_COLUMN_WIDTHS);
+		parallelismTable = createTable(folder, "Parallelism",
+				PARALLELISM_COLUMN_NAMES, PARALLELISM_COLUMN_WIDTHS);
+
+		Action analyzeAction = new Action("Analyze") {
+			@Override
+			public void run() {
+				IProject project = getSelectedProject();
+				if (project == null) {
+					MessageDialog.openInformation(getSite().getShell(),
+							"Build Analysis",
+							"Select a Zephyr project to analyze.");
+					return;
+				}
+				analyze(project);
+			}
+		};
+		analyzeAction.setToolTipText(
+				"Analyze the last build of the selected project");
+
+		exportAction = new Action("Export...") {
+			@Override
+			public void run() {
+				export();
+			}
+		};
+		exportAction.setToolTipText("Export the analysis as JSON");
+		exportAction.setEnabled(false);
+
+		IToolBarManager toolBar =
+				getViewSite().getActionBars().getToolBarManager();
+		toolBar.add(analyzeAction);
+		toolBar.add(exportAction);
+
+		BuildStatusManager.getDefault().addListener(listener);
+	}
+
+	private IProject getSelectedProject() {
+		ISelection selection =
+				getSite().getWorkbenchWindow().getSelectionService()
+						.getSelection();
+		if (!(selection instanceof IStructuredSelection)
+				|| selection.isEmpty()) {
+			return null;
+		}
+
+		IResource resource = Adapters.adapt(
+				((IStructuredSelection) selection).getFirstElement(),
+				IResource.class);
+		return (resource != null) ? resource.getProject() : null;
+	}
+
+	/**
+	 * Analyze the last build of a project in the background.
+	 *
+	 * @param project The project.
+	 */
+	private void analyze(IProject project) {
+		projectName = project.getName();
+
+		Job job = new Job("Analyzing build of " + project.getName()) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				NinjaBuildAnalysis result;
+				String message = null;
+				try {
+					result = new NinjaBuildAnalyzer(
+							ZephyrHelpers.Build
+									.getZephyrBuildConfiguration(project)
+									.getBuildDirectory()).analyze(TOP_N);
+					if (result == null) {
+						message = String.format(
+								"No ninja build of %s to analyze.",
+								project.getName());
+					}
+				} catch (IOException | CoreException e) {
+					result = null;
+					message = String.format("Cannot analyze build of %s: %s",
+							project.getName(), e.getMessage());
+				}
+
+				NinjaBuildAnalysis r = result;
+				String m = message;
+				PlatformUI.getWorkbench().getDisplay()
+						.asyncExec(() -> show(project.getName(), r, m));
+
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.schedule();
+	}
+
+	private void show(String project, NinjaBuildAnalysis result,
+			String message) {
+		if (summaryLabel.isDisposed()) {
+			return;
+		}
+
+		analysis = result;
+		exportAction.setEnabled(result != null);
+
+		if (result == null) {
+			summaryLabel.setText(message);
+			criticalPathTable.setItemCount(0);
+			slowestEdgesTable.setItemCount(0);
+			slowestSourcesTable.setItemCount(0);
+			parallelismTable.setItemCount(0);
+			return;
+		}
+
+		summaryLabel.setText(String.format(
+				"%s: %d steps in %s, critical path %s, %s of work, parallelism %.1f average, %.1f peak",
+				project, result.getEdges(),
+				BuildStatus.formatDuration(result.getWallTime()),
+				BuildStatus.formatDuration(result.getCriticalPathTime()),
+				BuildStatus.formatDuration(result.getTotalEdgeTime()),
+				result.getAverageParallelism(), result.getMaxParallelism()));
+
+		fillEdges(criticalPathTable, result.getCriticalPath());
+		fillEdges(slowestEdgesTable, result.getSlowestEdges());
+
+		List<NinjaBuildAnalysis.EdgeTiming> sources =
+				result.getSlowestSources();
+		slowestSourcesTable.setItemCount(sources.size());
+		for (int i = 0; i < sources.size(); i++) {
+			NinjaBuildAnalysis.EdgeTiming timing = sources.get(i);
+			slowestSourcesTable.getItem(i).setText(new String[] {
+				formatMillis(timing.getDuration()),
+				timing.getSource(),
+				timing.getOutput() });
+		}
+
+		double[] parallelism = result.getParallelism();
+		long interval = result.getParallelismInterval();
+		double max = Math.max(result.getMaxParallelism(), 1);
+		parallelismTable.setItemCount(parallelism.length);
+		for (int i = 0; i < parallelism.length; i++) {
+			int bar = (int) Math.round(parallelism[i] * BAR_WIDTH / max);
+			parallelismTable.getItem(i).setText(new String[] {
+				formatMillis(i * interval),
+				String.format("%.1f", parallelism[i]), //$NON-NLS-1$
+				new String(new char[bar]).replace('\0', '#') });
+		}
+	}
+
+	private static void fillEdges(Table table,
+			List<NinjaBuildAnalysis.EdgeTiming> timings) {
+		table.setItemCount(timings.size());
+		for (int i = 0; i < timings.size(); i++) {
+			NinjaBuildAnalysis.EdgeTiming timing = timings.get(i);
+			TableItem item = table.getItem(i);
+			item.setText(new String[] {
+				formatMillis(timing.getDuration()),
+				formatMillis(timing.getStartTime()),
+				formatMillis(timing.getEndTime()),
+				(timing.getRule() != null) ? timing.getRule() : "", //$NON-NLS-1$
+				timing.getOutput() });
+		}
+	}
+
+	private static String formatMillis(long millis) {
+		return String.format("%.2fs", millis / 1000.0); //$NON-NLS-1$
+	}
+
+	private void export() {
+		if (analysis == null) {
+			return;
+		}
+
+		FileDialog dialog = new FileDialog(getSite().getShell(), SWT.SAVE);
+		dialog.setText("Export Build Analysis");
+		dialog.setFilterExtensions(new String[] {
+			"*.json" }); //$NON-NLS-1$
+		dialog.setFileName("build-analysis.json"); //$NON-NLS-1$
+		dialog.setOverwrite(true);
+
+		String path = dialog.open();
+		if (path == null) {
+			return;
+		}
+
+		try {
+			analysis.write(new File(path));
+		} catch (IOException e) {
+			MessageDialog.openError(getSite().getShell(),
+					"Export Build Analysis", String.format(
+							"Cannot write %s: %s", path, e.getMessage()));
+		}
+	}
+
+	@Override
+	public void setFocus() {
+		folder.setFocus();
+	}
+
+	@Override
+	public void dispose() {
+		BuildStatusManager.getDefault().removeListener(listener);
+		super.dispose();
+	}
+
+}
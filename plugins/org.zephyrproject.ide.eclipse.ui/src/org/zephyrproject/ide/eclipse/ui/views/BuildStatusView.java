@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.zephyrproject.ide.eclipse.ui.views;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.ui.part.ViewPart;
+import org.zephyrproject.ide.eclipse.core.internal.build.BuildStatus;
+import org.zephyrproject.ide.eclipse.core.internal.build.BuildStatusManager;
+
+/**
+ * View showing the progress and estimated remaining time of builds.
+ */
+public class BuildStatusView extends ViewPart {
+
+	public static final String VIEW_ID =
+			"org.zephyrproject.ide.eclipse.ui.views.BuildStatusView"; //$NON-NLS-1$
+
+	private static final String[] COLUMN_NAMES = {
+		"Project",
+		"Progress",
+		"Edges",
+		"Running",
+		"Elapsed",
+		"Remaining",
+		"Step" };
+
+	private static final int[] COLUMN_WIDTHS = {
+		150,
+		70,
+		100,
+		70,
+		70,
+		80,
+		400 };
+
+	private Table table;
+
+	/* Coalesce the updates of the build thread into one refresh */
+	private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+	private final BuildStatusManager.Listener listener =
+			new BuildStatusManager.Listener() {
+				@Override
+				public void statusChanged(BuildStatus status) {
+					scheduleRefresh();
+				}
+			};
+
+	public BuildStatusView() {
+	}
+
+	@Override
+	public void createPartControl(Composite parent) {
+		table = new Table(parent, SWT.FULL_SELECTION | SWT.SINGLE);
+		table.setHeaderVisible(true);
+		table.setLinesVisible(true);
+
+		for (int i = 0; i < COLUMN_NAMES.length; i++) {
+			TableColumn column = new TableColumn(table, SWT.LEFT);
+			column.setText(COLUMN_NAMES[i]);
+			column.setWidth(COLUMN_WIDTHS[i]);
+		}
+
+		BuildStatusManager.getDefault().addListener(listener);
+		refresh();
+	}
+
+	private void scheduleRefresh() {
+		if (table.isDisposed() || !refreshPending.compareAndSet(false, true)) {
+			return;
+		}
+
+		Display display = table.getDisplay();
+		display.asyncExec(() -> {
+			refreshPending.set(false);
+			refresh();
+		});
+	}
+
+	private void refresh() {
+		if (table.isDisposed()) {
+			return;
+		}
+
+		List<BuildStatus> statuses =
+				BuildStatusManager.getDefault().getStatuses();
+		statuses.sort((a, b) -> a.getProject().compareTo(b.getProject()));
+
+		table.setItemCount(statuses.size());
+		for (int i = 0; i < statuses.size(); i++) {
+			BuildStatus status = statuses.get(i);
+			TableItem item = table.getItem(i);
+			item.setText(new String[] {
+				status.getProject(),
+				String.format("%d%%", status.getPercentage()), //$NON-NLS-1$
+				String.format("%d/%d", status.getFinished(), //$NON-NLS-1$
+						status.getTotal()),
+				Integer.toString(status.getRunning()),
+				BuildStatus.formatDuration(status.getElapsed()),
+				status.isDone() ? "Done"
+						: BuildStatus.formatDuration(status.getRemaining()),
+				status.getStep() });
+		}
+	}
+
+	@Override
+	public void setFocus() {
+		table.setFocus();
+	}
+
+	@Override
+	public void dispose() {
+		BuildStatusManager.getDefault().removeListener(listener);
+		super.dispose();
+	}
+
+}
@@ -34,6 +34,8 @@ import org.eclipse.swt.widgets.List;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.preferences.ScopedPreferenceStore;
+import org.zephyrproject.ide.eclipse.core.internal.IZephyrEventRecorder.Span;
+import org.zephyrproject.ide.eclipse.core.internal.ZephyrEvents;
 import org.zephyrproject.ide.eclipse.core.internal.ZephyrHelpers;
 import org.zephyrproject.ide.eclipse.core.preferences.ZephyrProjectPreferences;
 import org.zephyrproject.ide.eclipse.core.preferences.ZephyrProjectPreferences.ZephyrBase;
@@ -120,14 +122,20 @@ public class ZephyrApplicationBoardWizardPage extends WizardPage {
 			if (archFiles != null) {
 				monArch.beginTask("Gathering board configurations",
 						archFiles.length);
-				for (File oneArch : archFiles) {
-					if (oneArch.isDirectory()) {
-						ArrayList<String> bList = explorePath(oneArch, monArch);
-						if (!bList.isEmpty()) {
-							boardConfigs.put(oneArch.getName(),
-									bList.toArray(new String[0]));
+				Span span = ZephyrEvents.getRecorder().beginBoardScan(zBase);
+				try {
+					for (File oneArch : archFiles) {
+						if (oneArch.isDirectory()) {
+							ArrayList<String> bList =
+									explorePath(oneArch, monArch);
+							if (!bList.isEmpty()) {
+								boardConfigs.put(oneArch.getName(),
+										bList.toArray(new String[0]));
+							}
 						}
 					}
+				} finally {
+					span.end();
 				}
 				monArch.done();
 